@@ -0,0 +1,29 @@
+package Adesk_OperationService.Config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String STATISTICS_BLOCKS_CACHE = "statistics-blocks";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.statistics.cache-ttl-seconds:30}") long ttlSeconds,
+            @Value("${app.statistics.cache-max-companies:1000}") long maxCompanies) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(STATISTICS_BLOCKS_CACHE);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxCompanies)
+                .recordStats());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,33 @@
+package Adesk_OperationService.Config;
+
+import org.springframework.boot.http.converter.autoconfigure.ServerHttpMessageConvertersCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Бинарные форматы ответов для внутренних сервисов, выбираются по заголовку Accept:
+ * application/cbor, application/x-jackson-smile и application/x-protobuf.
+ * CBOR и Smile встают на свои места среди стандартных конвертеров, protobuf добавляется
+ * в конец списка: при Accept: &#42;/&#42; или без заголовка первым подходит JSON
+ */
+@Configuration
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+
+    @Bean
+    public ServerHttpMessageConvertersCustomizer binaryHttpMessageConvertersCustomizer() {
+        return builder -> builder
+                .withCborConverter(new JacksonCborHttpMessageConverter())
+                .withSmileConverter(new JacksonSmileHttpMessageConverter());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ProtobufRowsHttpMessageConverter());
+    }
+}
@@ -0,0 +1,6 @@
+package Adesk_OperationService.Config;
+
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,233 @@
+package Adesk_OperationService.Config;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.FileModel;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Model.RequestRows;
+import Adesk_OperationService.Model.StatBlockItemDTO;
+import Adesk_OperationService.Model.StatisticsBlocksDTO;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Ответы в формате src/main/proto/operation_rows.proto для внутренних сервисов:
+ * списки заявок (RequestRows) и блоки статистики (StatisticsBlocks).
+ * Сообщения кодируются вручную через CodedOutputStream, без сгенерированных классов.
+ * Конвертер только пишет и только эти два типа: на остальные ответы с Accept: application/x-protobuf
+ * Spring отвечает 406. По умолчанию клиенты по-прежнему получают JSON
+ */
+public class ProtobufRowsHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public ProtobufRowsHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return RequestRows.class.equals(clazz) || StatisticsBlocksDTO.class.equals(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        byte[] encoded;
+        if (body instanceof StatisticsBlocksDTO blocks)
+            encoded = encodeStatisticsBlocks(blocks);
+        else if (body instanceof RequestRows requests)
+            encoded = encodeRequestRows(requests);
+        else
+            throw new HttpMessageNotWritableException("protobuf is supported only for request lists and statistics blocks");
+        outputMessage.getHeaders().setContentLength(encoded.length);
+        outputMessage.getBody().write(encoded);
+    }
+
+    // ========== КОДИРОВАНИЕ ==========
+
+    public static byte[] encodeRequestRows(Collection<RequestModel> requests) throws IOException {
+        var out = new ByteArrayOutputStream(Math.max(64, requests.size() * 128));
+        CodedOutputStream coded = CodedOutputStream.newInstance(out);
+        for (RequestModel request : requests)
+            coded.writeByteArray(1, encodeRequestRow(request));
+        coded.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeRequestRow(RequestModel request) throws IOException {
+        var out = new ByteArrayOutputStream(128);
+        CodedOutputStream coded = CodedOutputStream.newInstance(out);
+        writeInt64(coded, 1, request.getId());
+        writeString(coded, 2, request.getDescription());
+        writeString(coded, 3, request.getTypeOfOperation());
+        writeInt64(coded, 4, request.getProjectId());
+        writeString(coded, 5, request.getNameOfCounterparty());
+        if (request.getSum() != null && request.getSum() != 0)
+            coded.writeSInt64(6, request.getSum());
+        if (request.getCreatedAt() != null)
+            coded.writeInt64(7, request.getCreatedAt().toInstant().toEpochMilli());
+        writeInt64(coded, 8, request.getCompanyId());
+        writeString(coded, 9, request.getCreatorLogin());
+        writeString(coded, 10, request.getCreatorEmail());
+        writeString(coded, 11, request.getResponsibleManager());
+        if (request.getApprovedStatus() != null)
+            coded.writeEnum(12, statusNumber(request.getApprovedStatus()));
+        writeInt64(coded, 13, request.getVersion());
+        for (FileModel file : request.getFiles())
+            coded.writeByteArray(14, encodeFileRef(file));
+        coded.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeFileRef(FileModel file) throws IOException {
+        var out = new ByteArrayOutputStream(64);
+        CodedOutputStream coded = CodedOutputStream.newInstance(out);
+        writeInt64(coded, 1, file.getId());
+        writeString(coded, 2, file.getOriginalFilename());
+        writeInt64(coded, 3, file.getFileSize());
+        writeString(coded, 4, file.getHref());
+        writeString(coded, 5, file.getPreviewHref());
+        coded.flush();
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeStatisticsBlocks(StatisticsBlocksDTO blocks) throws IOException {
+        var out = new ByteArrayOutputStream(256);
+        CodedOutputStream coded = CodedOutputStream.newInstance(out);
+        if (blocks.getTotal() != null)
+            coded.writeByteArray(1, encodeStatItem(blocks.getTotal()));
+        writeStatItems(coded, 2, blocks.getByTypeOfOperation());
+        writeStatItems(coded, 3, blocks.getByProject());
+        writeStatItems(coded, 4, blocks.getByCounterparty());
+        writeStatItems(coded, 5, blocks.getByMonth());
+        writeStatItems(coded, 6, blocks.getByStatus());
+        coded.flush();
+        return out.toByteArray();
+    }
+
+    private static void writeStatItems(CodedOutputStream coded, int field, List<StatBlockItemDTO> items) throws IOException {
+        for (StatBlockItemDTO item : items)
+            coded.writeByteArray(field, encodeStatItem(item));
+    }
+
+    private static byte[] encodeStatItem(StatBlockItemDTO item) throws IOException {
+        var out = new ByteArrayOutputStream(48);
+        CodedOutputStream coded = CodedOutputStream.newInstance(out);
+        writeString(coded, 1, item.getKey());
+        coded.writeInt64(2, item.getCountOfOperations());
+        coded.writeSInt64(3, item.getTotal());
+        coded.writeSInt64(4, item.getIncome());
+        coded.writeSInt64(5, item.getOutcome());
+        coded.flush();
+        return out.toByteArray();
+    }
+
+    // значения по умолчанию (null/пустая строка) в proto3 не пишутся
+    private static void writeString(CodedOutputStream coded, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty())
+            coded.writeString(field, value);
+    }
+
+    private static void writeInt64(CodedOutputStream coded, int field, Long value) throws IOException {
+        if (value != null && value != 0)
+            coded.writeInt64(field, value);
+    }
+
+    private static int statusNumber(RequestStatuses status) {
+        return switch (status) {
+            case APPROVED -> 1;
+            case APPROVING -> 2;
+            case DISAPPROVED -> 3;
+        };
+    }
+
+    // ========== ДЕКОДИРОВАНИЕ (для клиентов на java и бенчмарка) ==========
+
+    public static List<RequestModel> decodeRequestRows(byte[] data) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        List<RequestModel> requests = new ArrayList<>();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == 1)
+                requests.add(decodeRequestRow(input.readByteArray()));
+            else
+                input.skipField(tag);
+        }
+        return requests;
+    }
+
+    private static RequestModel decodeRequestRow(byte[] data) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        var request = new RequestModel();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> request.setId(input.readInt64());
+                case 2 -> request.setDescription(input.readString());
+                case 3 -> request.setTypeOfOperation(input.readString());
+                case 4 -> request.setProjectId(input.readInt64());
+                case 5 -> request.setNameOfCounterparty(input.readString());
+                case 6 -> request.setSum(input.readSInt64());
+                case 7 -> request.setCreatedAt(Instant.ofEpochMilli(input.readInt64()).atZone(ZoneId.systemDefault()));
+                case 8 -> request.setCompanyId(input.readInt64());
+                case 9 -> request.setCreatorLogin(input.readString());
+                case 10 -> request.setCreatorEmail(input.readString());
+                case 11 -> request.setResponsibleManager(input.readString());
+                case 12 -> request.setApprovedStatus(statusOf(input.readEnum()));
+                case 13 -> request.setVersion(input.readInt64());
+                case 14 -> request.getFiles().add(decodeFileRef(input.readByteArray()));
+                default -> input.skipField(tag);
+            }
+        }
+        return request;
+    }
+
+    private static FileModel decodeFileRef(byte[] data) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        var file = new FileModel();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> file.setId(input.readInt64());
+                case 2 -> file.setOriginalFilename(input.readString());
+                case 3 -> file.setFileSize(input.readInt64());
+                case 4 -> file.setHref(input.readString());
+                case 5 -> file.setPreviewHref(input.readString());
+                default -> input.skipField(tag);
+            }
+        }
+        return file;
+    }
+
+    private static RequestStatuses statusOf(int number) {
+        return switch (number) {
+            case 1 -> RequestStatuses.APPROVED;
+            case 2 -> RequestStatuses.APPROVING;
+            case 3 -> RequestStatuses.DISAPPROVED;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package Adesk_OperationService.Config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Отправляет соединения read-only транзакций на реплику, остальные на основную БД.
+ * Работает только за LazyConnectionDataSourceProxy: иначе соединение берется раньше,
+ * чем транзакция помечена как read-only
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker writesTracker;
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor, ReadYourWritesTracker writesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.writesTracker = writesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writesTracker.recordWrite();
+            return DataSourceRole.PRIMARY;
+        }
+
+        // реплика отстает или пользователь только что писал - читаем с основной БД
+        if (!lagMonitor.isReplicaUsable() || writesTracker.mustReadFromPrimary(lagMonitor.getLastLagMillis()))
+            return DataSourceRole.PRIMARY;
+
+        return DataSourceRole.REPLICA;
+    }
+}
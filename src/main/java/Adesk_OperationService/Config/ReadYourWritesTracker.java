@@ -0,0 +1,58 @@
+package Adesk_OperationService.Config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запоминает время последней записи пользователя, чтобы его следующие чтения
+ * шли на основную БД, пока реплика не догнала эту запись.
+ * Сессией считается пользователь из заголовка X-User-Email (сервис stateless)
+ */
+public class ReadYourWritesTracker {
+    private final ConcurrentHashMap<String, Long> lastWriteMillis = new ConcurrentHashMap<>();
+    private final long windowMillis;
+
+    public ReadYourWritesTracker(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void recordWrite() {
+        String session = currentSession();
+        if (session != null)
+            lastWriteMillis.put(session, System.currentTimeMillis());
+    }
+
+    /**
+     * @param replicaLagMillis текущее отставание реплики
+     * @return true, если пользователь писал недавно и реплика могла еще не получить изменения
+     */
+    public boolean mustReadFromPrimary(long replicaLagMillis) {
+        String session = currentSession();
+        if (session == null)
+            return false;
+
+        Long lastWrite = lastWriteMillis.get(session);
+        if (lastWrite == null)
+            return false;
+
+        long sinceWrite = System.currentTimeMillis() - lastWrite;
+        return sinceWrite < Math.max(windowMillis, replicaLagMillis);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long threshold = System.currentTimeMillis() - windowMillis;
+        lastWriteMillis.values().removeIf(time -> time < threshold);
+    }
+
+    private String currentSession() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes))
+            return null;
+        HttpServletRequest request = attributes.getRequest();
+        return request.getHeader("X-User-Email");
+    }
+}
@@ -0,0 +1,60 @@
+package Adesk_OperationService.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Периодически измеряет отставание реплики. Пока отставание больше допустимого
+ * или реплика недоступна, все чтения идут на основную БД
+ */
+public class ReplicaLagMonitor {
+    private final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // на основной БД (или на той же БД под вторым пулом) отставание считается нулевым
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0)
+            END
+            """;
+
+    private final JdbcTemplate replicaJdbc;
+    private final long maxLagMillis;
+    private volatile long lastLagMillis = Long.MAX_VALUE;
+    private volatile boolean replicaUsable = false;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagMillis) {
+        this.replicaJdbc = new JdbcTemplate(replica);
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        try {
+            Number lag = replicaJdbc.queryForObject(LAG_QUERY, Number.class);
+            lastLagMillis = lag == null ? 0 : lag.longValue();
+            boolean usable = lastLagMillis <= maxLagMillis;
+            if (usable != replicaUsable)
+                log.info("Replica is {} (lag {} ms)", usable ? "used for reads" : "bypassed", lastLagMillis);
+            replicaUsable = usable;
+        } catch (Exception ex) {
+            if (replicaUsable)
+                log.warn("Replica is unavailable, reads go to primary: {}", ex.getMessage());
+            lastLagMillis = Long.MAX_VALUE;
+            replicaUsable = false;
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+}
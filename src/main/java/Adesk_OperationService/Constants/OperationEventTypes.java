@@ -0,0 +1,8 @@
+package Adesk_OperationService.Constants;
+
+public enum OperationEventTypes {
+    CREATED,
+    APPROVED,
+    DISAPPROVED,
+    DELETED
+}
@@ -0,0 +1,72 @@
+package Adesk_OperationService.Constants;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Поля заявки, которые можно запросить параметром fields. Каждому полю соответствует
+ * колонка requests/requests_archive, в SELECT попадают только выбранные колонки.
+ * files читается отдельным запросом по метаданным файлов
+ */
+public enum RequestFields {
+    ID("id", "id"),
+    DESCRIPTION("description", "description"),
+    TYPE_OF_OPERATION("typeOfOperation", "type_of_operation"),
+    PROJECT_ID("projectId", "project_id"),
+    NAME_OF_COUNTERPARTY("nameOfCounterparty", "name_of_counterparty"),
+    SUM("sum", "sum"),
+    CREATED_AT("createdAt", "created_at"),
+    COMPANY_ID("companyId", "company_id"),
+    CREATOR_LOGIN("creatorLogin", "creator_login"),
+    CREATOR_EMAIL("creatorEmail", "creator_email"),
+    RESPONSIBLE_MANAGER("responsibleManager", "responsible_manager"),
+    APPROVED_STATUS("approvedStatus", "approved_status"),
+    VERSION("version", "version"),
+    FILES("files", null);
+
+    private static final Map<String, RequestFields> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(RequestFields::getName, Function.identity()));
+
+    private final String name;
+    private final String column;
+
+    RequestFields(String name, String column) {
+        this.name = name;
+        this.column = column;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Разбирает значение параметра fields
+     *
+     * @param fields имена полей через запятую, как в JSON ответа
+     * @return выбранные поля
+     * @throws IllegalArgumentException если поле неизвестно или список пуст
+     */
+    public static Set<RequestFields> parse(String fields) {
+        Set<RequestFields> selected = EnumSet.noneOf(RequestFields.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty())
+                continue;
+            RequestFields field = BY_NAME.get(trimmed);
+            if (field == null)
+                throw new IllegalArgumentException("unknown field: " + trimmed);
+            selected.add(field);
+        }
+        if (selected.isEmpty())
+            throw new IllegalArgumentException("fields are empty");
+        return selected;
+    }
+}
@@ -0,0 +1,34 @@
+package Adesk_OperationService.Constants;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Допустимые переходы статуса заявки. Переход выполняется одним условным UPDATE
+ * по текущему статусу, поэтому из двух одновременных переходов проходит только первый
+ */
+public final class RequestStatusTransitions {
+    private static final Map<RequestStatuses, Set<RequestStatuses>> TRANSITIONS = new EnumMap<>(Map.of(
+            RequestStatuses.APPROVING, Set.of(RequestStatuses.APPROVED, RequestStatuses.DISAPPROVED),
+            RequestStatuses.APPROVED, Set.of(),
+            RequestStatuses.DISAPPROVED, Set.of()
+    ));
+
+    private RequestStatusTransitions() {
+    }
+
+    /**
+     * Статусы, из которых можно перейти в to
+     *
+     * @param to целевой статус
+     * @return имена статусов для условия approved_status IN (...)
+     */
+    public static List<String> sourcesOf(RequestStatuses to) {
+        return TRANSITIONS.entrySet().stream()
+                .filter(x -> x.getValue().contains(to))
+                .map(x -> x.getKey().name())
+                .toList();
+    }
+}
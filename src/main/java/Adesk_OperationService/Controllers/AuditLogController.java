@@ -0,0 +1,62 @@
+package Adesk_OperationService.Controllers;
+
+import Adesk_OperationService.Model.AuditLogModel;
+import Adesk_OperationService.Services.AuditLogService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/requests")
+@RequiredArgsConstructor
+@Tag(name = "Журнал действий", description = "API для журнала создания, утверждения, отклонения и удаления заявок")
+@SecurityRequirement(name = "bearerAuth")
+public class AuditLogController {
+    private final Logger log = LoggerFactory.getLogger(AuditLogController.class);
+    private static final int MAX_LIMIT = 1000;
+
+    private final AuditLogService auditLogService;
+
+    @GetMapping("/get-audit-log")
+    @Operation(
+            summary = "Получение журнала действий",
+            description = "Возвращает последние действия с заявками компании или с одной заявкой, от новых к старым. Журнал пишется пачками и может отставать на интервал сброса"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Журнал успешно получен",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = AuditLogModel.class)))),
+            @ApiResponse(responseCode = "400", description = "Невалидный размер выборки"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getAuditLog(
+            @Parameter(description = "ID заявки, по умолчанию все заявки компании")
+            @RequestParam(required = false) Long requestId,
+            @Parameter(description = "Сколько записей вернуть (до 1000)")
+            @RequestParam(defaultValue = "100") int limit,
+            HttpServletRequest request){
+        if(limit < 1 || limit > MAX_LIMIT)
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_LIMIT);
+
+        try{
+            return ResponseEntity.ok().body(auditLogService.find(Long.parseLong(request.getHeader("X-Company-Id")), requestId, limit));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+}
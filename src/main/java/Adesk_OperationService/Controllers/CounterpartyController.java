@@ -0,0 +1,62 @@
+package Adesk_OperationService.Controllers;
+
+import Adesk_OperationService.Model.CounterpartySuggestionDTO;
+import Adesk_OperationService.Services.CounterpartyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/requests")
+@RequiredArgsConstructor
+@Tag(name = "Контрагенты", description = "API для подсказок имени контрагента")
+@SecurityRequirement(name = "bearerAuth")
+public class CounterpartyController {
+    private final Logger log = LoggerFactory.getLogger(CounterpartyController.class);
+    private static final int MAX_LIMIT = 50;
+
+    private final CounterpartyService counterpartyService;
+
+    @GetMapping("/get-counterparty-suggestions")
+    @Operation(
+            summary = "Подсказки контрагентов",
+            description = "Возвращает контрагентов компании, имя которых начинается с prefix (без учета регистра), самые частые и недавние первыми"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Подсказки успешно получены",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = CounterpartySuggestionDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Невалидный размер выборки"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getCounterpartySuggestions(
+            @Parameter(description = "Начало имени контрагента")
+            @RequestParam(defaultValue = "") String prefix,
+            @Parameter(description = "Сколько подсказок вернуть (до 50)")
+            @RequestParam(defaultValue = "10") int limit,
+            HttpServletRequest request){
+        if(limit < 1 || limit > MAX_LIMIT)
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_LIMIT);
+
+        try{
+            return ResponseEntity.ok().body(counterpartyService.suggest(Long.parseLong(request.getHeader("X-Company-Id")), prefix, limit));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+}
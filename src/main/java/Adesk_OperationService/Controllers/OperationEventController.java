@@ -0,0 +1,70 @@
+package Adesk_OperationService.Controllers;
+
+import Adesk_OperationService.Model.OperationEventsPageDTO;
+import Adesk_OperationService.Services.OperationEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/requests")
+@RequiredArgsConstructor
+@Tag(name = "Лента изменений", description = "API для инкрементальной синхронизации операций")
+@SecurityRequirement(name = "bearerAuth")
+public class OperationEventController {
+    private final Logger log = LoggerFactory.getLogger(OperationEventController.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final OperationEventService operationEventService;
+
+    @GetMapping("/get-operation-events")
+    @Operation(
+            summary = "Получение ленты изменений операций",
+            description = "Возвращает события создания, утверждения, отклонения и удаления заявок компании по порядку после курсора after"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "События успешно получены",
+                    content = @Content(schema = @Schema(implementation = OperationEventsPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Невалидный курсор или размер пачки"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getOperationEvents(
+            @Parameter(description = "Номер последнего обработанного события (0 - с начала)")
+            @RequestParam(defaultValue = "0") long after,
+            @Parameter(description = "Размер пачки (до 1000)")
+            @RequestParam(defaultValue = "500") int limit,
+            HttpServletRequest request){
+        if(after < 0 || limit < 1 || limit > MAX_BATCH_SIZE)
+            return ResponseEntity.badRequest().body("after must be >= 0 and limit between 1 and " + MAX_BATCH_SIZE);
+
+        try{
+            Long companyId = Long.parseLong(request.getHeader("X-Company-Id"));
+
+            // берем на одну запись больше, чтобы понять, есть ли следующая пачка
+            var events = operationEventService.readAfter(companyId, after, limit + 1);
+            boolean hasMore = events.size() > limit;
+            if(hasMore)
+                events = events.subList(0, limit);
+
+            long nextCursor = events.isEmpty() ? after : events.get(events.size() - 1).getSequence();
+            return ResponseEntity.ok().body(new OperationEventsPageDTO(events, nextCursor, hasMore));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package Adesk_OperationService.Controllers;
 
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestFields;
 import Adesk_OperationService.Constants.RequestStatuses;
 import Adesk_OperationService.Model.OperationModel.*;
 import Adesk_OperationService.Model.OperationModel.Request.RequestFormDTO;
 import Adesk_OperationService.Model.OperationModel.Request.RequestModelDeleteDTO;
 import Adesk_OperationService.Model.OperationModel.Request.SortByDateDTO;
+import Adesk_OperationService.Model.RequestFilter;
+import Adesk_OperationService.Model.RequestRows;
 import Adesk_OperationService.Model.StatDTO;
 import Adesk_OperationService.Repository.FileRepository;
 import Adesk_OperationService.Repository.RequestRepository;
+import Adesk_OperationService.Services.ApprovalQueueBroadcaster;
+import Adesk_OperationService.Services.ArchiveService;
+import Adesk_OperationService.Services.OperationEventService;
+import Adesk_OperationService.Services.PreviewService;
+import Adesk_OperationService.Services.RequestReadService;
 import Adesk_OperationService.Services.RequestService;
+import Adesk_OperationService.Services.RequestStatusService;
+import Adesk_OperationService.Services.StatisticRollupService;
 import Adesk_OperationService.Services.TimeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,8 +38,10 @@ import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.tools.JavaFileManager;
 import java.net.URLEncoder;
@@ -36,7 +49,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -51,6 +66,13 @@ public class RequestController {
     private final TimeService _timeService;
     private final RequestService requestService;
     private final FileRepository fileRepository;
+    private final PreviewService previewService;
+    private final OperationEventService operationEventService;
+    private final ApprovalQueueBroadcaster approvalQueueBroadcaster;
+    private final RequestReadService requestReadService;
+    private final StatisticRollupService statisticRollupService;
+    private final RequestStatusService requestStatusService;
+    private final ArchiveService archiveService;
 //    private final
 
 
@@ -94,7 +116,9 @@ public class RequestController {
             );
         }
 
-        var fileOpt = fileRepository.findById(id);
+        var fileOpt = fileRepository.findVisibleById(id);
+        if (fileOpt.isEmpty())
+            fileOpt = archiveService.findArchivedFile(id); //старые файлы лежат в архиве
         if (fileOpt.isEmpty()) {
             return CompletableFuture.completedFuture(
                     ResponseEntity.notFound().build()
@@ -136,6 +160,40 @@ public class RequestController {
         );
     }
 
+    @GetMapping("/download-file-preview/{id}")
+    @Operation(
+            summary = "Получение превью файла",
+            description = "Возвращает уменьшенную копию картинки или первой страницы pdf. Требуется право REQUEST_WORK"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Превью успешно получено"),
+            @ApiResponse(responseCode = "401", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "404", description = "Файл не найден или превью для него не строится")
+    })
+    public ResponseEntity<byte[]> downloadFilePreview(
+            @Parameter(description = "ID файла", required = true)
+            @PathVariable Long id,
+            HttpServletRequest request
+    ) {
+        String permissions = request.getHeader("X-User-Permissions");
+        if (permissions == null || Arrays.stream(permissions.split(","))
+                .noneMatch("REQUEST_WORK"::equals)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        var previewOpt = previewService.getOrCreatePreview(id);
+        if (previewOpt.isEmpty())
+            return ResponseEntity.notFound().build();
+
+        var preview = previewOpt.get();
+        //превью по id не меняется, поэтому его можно долго держать в кэше браузера
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(preview.getPreviewContentType()))
+                .contentLength(preview.getPreviewContent().length)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .body(preview.getPreviewContent());
+    }
+
 
 
 
@@ -153,6 +211,7 @@ public class RequestController {
             @ApiResponse(responseCode = "200", description = "Запросы успешно удалены"),
             @ApiResponse(responseCode = "400", description = "Невалидные данные или некорректный статус запросов"),
             @ApiResponse(responseCode = "401", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "409", description = "Статус запросов изменился во время удаления"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
     public ResponseEntity<?> deleteRequestsAsync(
@@ -164,60 +223,60 @@ public class RequestController {
             @RequestBody List<RequestModelDeleteDTO> dtos,
             HttpServletRequest request){
         try{
-            var requests = _requestRepository.findAllById(dtos.stream().map(x -> x.getId()).collect(Collectors.toList()));
-
-
-            if(Arrays.stream(request.getHeader("X-User-Permissions") //если может удалять только проекты до аппрува
-                    .split(",")).anyMatch(s -> s.equals("REQUEST_WORK"))){
-
-                List<Long> ids = dtos.stream()
-                        .map(dto -> dto.getId())
-                        .collect(Collectors.toList());
-
-                _requestRepository.deleteAllById(ids);
-
+            var permissions = Arrays.asList(request.getHeader("X-User-Permissions").split(","));
+            var email = request.getHeader("X-User-Email");
+            Long companyId = Long.parseLong(request.getHeader("X-Company-Id"));
+            List<Long> ids = dtos.stream()
+                    .map(dto -> dto.getId())
+                    .distinct()
+                    .collect(Collectors.toList());
+            var requests = _requestRepository.findAllById(ids).stream()
+                    .filter(x -> companyId.equals(x.getCompanyId()))
+                    .toList();
+
+            // проверки ниже дают понятную ошибку, но удаляет только то, что прошло те же условия
+            // в самом UPDATE: события и итоги пишутся по строкам, которые он вернул
+            if(permissions.contains("REQUEST_WORK")){
+                requestStatusService.delete(ids, companyId, statusNames(RequestStatuses.values()), null, null, email);
                 return ResponseEntity.ok().body("deleting successfully");
             }
-            else if(Arrays.stream(request.getHeader("X-User-Permissions") //если может удалять только проекты до аппрува
-                    .split(",")).anyMatch(s -> s.equals("CREATE_REQUEST_AND_DELETE_BEFORE_APPROVE"))){ //для работы с запросами
+
+            List<RequestModel> deleted;
+            if(permissions.contains("CREATE_REQUEST_AND_DELETE_BEFORE_APPROVE")){ //если может удалять только проекты до аппрува
                 if(requests.stream().anyMatch(x -> x.getApprovedStatus() != RequestStatuses.APPROVING))
                     return ResponseEntity.badRequest().body("you can delete only request with approving status");
-                if(!Arrays.stream(request.getHeader("X-User-Permissions").split(",")).anyMatch(s -> s.equals("REQUEST_WORK")))
-                    if (requests.stream().anyMatch(s -> !s.getCreatorEmail().equals(request.getHeader("X-User-Email"))))
-                        return ResponseEntity.badRequest().body("you can delete only yours request");
-
+                if(requests.stream().anyMatch(s -> !email.equals(s.getCreatorEmail())))
+                    return ResponseEntity.badRequest().body("you can delete only yours request");
 
-                List<Long> ids = dtos.stream()
-                        .map(dto -> dto.getId())
-                        .collect(Collectors.toList());
-
-                _requestRepository.deleteAllById(ids);
-
-                return ResponseEntity.ok().body("deleting successfully");
+                deleted = requestStatusService.delete(ids, companyId, statusNames(RequestStatuses.APPROVING), email, null, email);
             }
-            else if(Arrays.stream(request.getHeader("X-User-Permissions")
-                    .split(",")).anyMatch(s -> s.equals("APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE"))){
-
-                if (requests.stream().anyMatch(s -> s.getApprovedStatus() == RequestStatuses.APPROVING))
+            else if(permissions.contains("APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE")){
+                if(requests.stream().anyMatch(s -> s.getApprovedStatus() == RequestStatuses.APPROVING))
                     return ResponseEntity.badRequest().body("you can only delete projects which approved");
+                if(requests.stream().anyMatch(s -> !email.equals(s.getResponsibleManager())))
+                    return ResponseEntity.badRequest().body("you can only delete your projects");
 
-                if(!Arrays.stream(request.getHeader("X-User-Permissions").split(",")).anyMatch(s -> s.equals("REQUEST_WORK")))
-                    if(requests.stream().anyMatch(s -> s.getResponsibleManager() != request.getHeader("X-User-Email")))
-                        return ResponseEntity.badRequest().body("you can only delete your projects");
-
-                List<Long> ids = dtos.stream().map(dto -> dto.getId()).collect(Collectors.toList());
-
-                _requestRepository.deleteAllById(ids);
-
-                return ResponseEntity.ok().body("deleting successfully");
+                deleted = requestStatusService.delete(ids, companyId, statusNames(RequestStatuses.APPROVED), null, email, email);
             }
             else return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("no rights");
+
+            // статус или владелец поменялись между проверкой и удалением - не удаляем ничего
+            if(deleted.size() < requests.size()){
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("request status has already been changed");
+            }
+            return ResponseEntity.ok().body("deleting successfully");
         } catch(Exception ex){
             log.error(ex.getMessage());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly(); //не оставляем события без удаления
             return ResponseEntity.status(500).body("Logic error");
         }
     }
 
+    private static List<String> statusNames(RequestStatuses... statuses){
+        return Arrays.stream(statuses).map(Enum::name).toList();
+    }
+
     @GetMapping("/get-requests")
     @Operation(
             summary = "Получение запросов на компанию",
@@ -228,36 +287,64 @@ public class RequestController {
             @ApiResponse(responseCode = "204", description = "Нет данных"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
-    public ResponseEntity<?> getRequestsByProjectName(HttpServletRequest request){
+    public ResponseEntity<?> getRequestsByProjectName(
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request){
         try{
+            if(fields != null)
+                return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                        null, RequestStatuses.APPROVING, null, null));
 
-            var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+            // только очередь согласования, а не вся история компании
+            var requests = requestReadService.findApprovalQueue(Long.parseLong(request.getHeader("X-Company-Id")));
             if(requests.isEmpty())
                 return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
 
-            requests = requests.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVING).toList();
-
-            return ResponseEntity.ok().body(requests);
+            return ResponseEntity.ok().body(RequestRows.of(requests));
         } catch(Exception ex){
             log.error(ex.getMessage());
             return ResponseEntity.status(500).body("Logic error");
         }
     }
 
+    @GetMapping(value = "/stream-requests", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Поток изменений очереди согласования",
+            description = "SSE-поток событий CREATED, APPROVED, DISAPPROVED и DELETED по заявкам текущей компании. " +
+                    "id события совпадает с курсором get-operation-events"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Подписка оформлена"),
+            @ApiResponse(responseCode = "400", description = "Не передана компания")
+    })
+    public ResponseEntity<SseEmitter> streamRequests(HttpServletRequest request){
+        String companyId = request.getHeader("X-Company-Id");
+        if(companyId == null || companyId.isBlank())
+            return ResponseEntity.badRequest().build();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(approvalQueueBroadcaster.subscribe(Long.parseLong(companyId)));
+    }
+
     @PostMapping("/approve-request/{requestId}")
     @Operation(
             summary = "Утверждение запроса",
-            description = "Утверждает запрос с указанным ID. Требуются права REQUEST_WORK или APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE"
+            description = "Утверждает запрос с указанным ID, если он на согласовании. Требуются права REQUEST_WORK или APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Запрос успешно утвержден"),
-            @ApiResponse(responseCode = "400", description = "Невалидный ID или запрос уже утвержден"),
+            @ApiResponse(responseCode = "400", description = "Невалидный ID или запрос не существует"),
             @ApiResponse(responseCode = "401", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "409", description = "Статус или версия запроса уже изменены"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
     public ResponseEntity<?> approveRequest(
             @Parameter(description = "ID запроса для утверждения", required = true)
             @PathVariable Long requestId,
+            @Parameter(description = "Версия запроса, которую видел клиент. Если передана, утверждение пройдет только для нее")
+            @RequestParam(required = false) Long version,
             HttpServletRequest request){
         if(requestId == null)
             return ResponseEntity.badRequest().body("id cannot be null");
@@ -266,34 +353,33 @@ public class RequestController {
                 .split(",")).anyMatch(s -> s.equals("REQUEST_WORK") || s.equals("APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE")))
             return ResponseEntity.badRequest().body("no rights");
 
-        var requestOpt = _requestRepository.findById(requestId);
-        if(requestOpt.isEmpty())
-            return ResponseEntity.badRequest().body("request doesn't exist");
+        // условный переход одним запросом, сущность заранее не читается
+        var approved = requestStatusService.approve(requestId, version, request.getHeader("X-User-Email"));
+        if(approved.isPresent())
+            return ResponseEntity.ok().body("successfully approving");
 
-
-        var req = requestOpt.get();
-        if(req.getApprovedStatus() == RequestStatuses.APPROVING)
-            return ResponseEntity.badRequest().body("request has been already approved");
-        req.setApprovedStatus(RequestStatuses.APPROVED);
-        _requestRepository.save(req);
-
-        return ResponseEntity.ok().body("successfully approving");
+        if(!_requestRepository.existsById(requestId))
+            return ResponseEntity.badRequest().body("request doesn't exist");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("request status has already been changed");
     }
 
     @PostMapping("/disapprove-request/{requestId}")
     @Operation(
             summary = "Отклонение запроса",
-            description = "Отклоняет запрос с указанным ID. Требуются права REQUEST_WORK или APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE"
+            description = "Отклоняет и удаляет запрос с указанным ID, если он на согласовании. Требуются права REQUEST_WORK или APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Запрос успешно отклонен"),
-            @ApiResponse(responseCode = "400", description = "Невалидный ID"),
+            @ApiResponse(responseCode = "400", description = "Невалидный ID или запрос не существует"),
             @ApiResponse(responseCode = "401", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "409", description = "Статус или версия запроса уже изменены"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
     public ResponseEntity<?> disapproveRequest(
             @Parameter(description = "ID запроса для отклонения", required = true)
             @PathVariable Long requestId,
+            @Parameter(description = "Версия запроса, которую видел клиент. Если передана, отклонение пройдет только для нее")
+            @RequestParam(required = false) Long version,
             HttpServletRequest request){
         if(requestId == null)
             return ResponseEntity.badRequest().body("id cannot be null");
@@ -302,16 +388,13 @@ public class RequestController {
                 .split(",")).anyMatch(s -> s.equals("REQUEST_WORK") || s.equals("APPROVE_REQUEST_AND_DELETE_AFTER_APPROVE")))
             return ResponseEntity.badRequest().body("no rights");
 
-        var requestOpt = _requestRepository.findById(requestId);
-        if(requestOpt.isEmpty())
-            return ResponseEntity.badRequest().body("request doesn't exist");
-
-        var req = requestOpt.get();
-
-//        req.setApprovedStatus(RequestStatuses.DISAPPROVED);
-        _requestRepository.delete(req);
+        var disapproved = requestStatusService.disapprove(requestId, version, request.getHeader("X-User-Email"));
+        if(disapproved.isPresent())
+            return ResponseEntity.ok().body("successfully disapproved");
 
-        return ResponseEntity.ok().body("successfully disapproved");
+        if(!_requestRepository.existsById(requestId))
+            return ResponseEntity.badRequest().body("request doesn't exist");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("request status has already been changed");
     }
 
     @GetMapping("/get-requests-order-by-date-today")
@@ -324,13 +407,19 @@ public class RequestController {
             @ApiResponse(responseCode = "204", description = "Нет данных"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
-    public ResponseEntity<?> getRequestsOrderByDateToday(HttpServletRequest request){
+    public ResponseEntity<?> getRequestsOrderByDateToday(
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request){
 
-        var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+        var period = _timeService.getTodayPeriod();
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")), null, null, period, null));
+        var requests = requestReadService.findByCompanyIdInPeriod(Long.parseLong(request.getHeader("X-Company-Id")), period);
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
 
-        return ResponseEntity.ok().body(_timeService.filterByToday(requests));
+        return ResponseEntity.ok().body(RequestRows.of(_timeService.filterByToday(requests)));
     }
 
     @GetMapping("/get-requests-order-by-date-week")
@@ -343,14 +432,21 @@ public class RequestController {
             @ApiResponse(responseCode = "204", description = "Нет данных"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
-    public ResponseEntity<?> getRequestsOrderByDateWeek(HttpServletRequest request){
+    public ResponseEntity<?> getRequestsOrderByDateWeek(
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request){
 
-        var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+        var period = _timeService.getCurrentWeekPeriod();
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    null, RequestStatuses.APPROVING, period, null));
+        var requests = requestReadService.findByCompanyIdInPeriod(Long.parseLong(request.getHeader("X-Company-Id")), period);
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         requests = requests.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVING).toList();
 
-        return ResponseEntity.ok().body(_timeService.filterByCurrentWeek(requests)); //фильтрация по текущей неделе
+        return ResponseEntity.ok().body(RequestRows.of(_timeService.filterByCurrentWeek(requests))); //фильтрация по текущей неделе
     }
 
     @GetMapping("/get-requests-order-by-month")
@@ -363,13 +459,20 @@ public class RequestController {
             @ApiResponse(responseCode = "204", description = "Нет данных"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
-    public ResponseEntity<?> getRequestsOrderByMonth(HttpServletRequest request){
-        var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+    public ResponseEntity<?> getRequestsOrderByMonth(
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request){
+        var period = _timeService.getCurrentMonthPeriod();
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    null, RequestStatuses.APPROVING, period, null));
+        var requests = requestReadService.findByCompanyIdInPeriod(Long.parseLong(request.getHeader("X-Company-Id")), period);
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         requests = requests.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVING).toList();
 
-        return ResponseEntity.ok().body(_timeService.filterByCurrentMonth(requests));
+        return ResponseEntity.ok().body(RequestRows.of(_timeService.filterByCurrentMonth(requests)));
     }
 
     @PostMapping("/get-requests-order-by-dates")
@@ -390,16 +493,22 @@ public class RequestController {
                     content = @Content(schema = @Schema(implementation = SortByDateDTO.class))
             )
             @RequestBody SortByDateDTO dto,
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
             HttpServletRequest request){
         if(!dto.isValid())
             return ResponseEntity.badRequest().body("dto is invalid");
 
-        var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+        var period = _timeService.getPeriod(dto.date1, dto.date2);
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    null, RequestStatuses.APPROVING, period, null));
+        var requests = requestReadService.findByCompanyIdInPeriod(Long.parseLong(request.getHeader("X-Company-Id")), period);
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         requests = requests.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVING).toList();
 
-        return ResponseEntity.ok().body(_timeService.filterByDateTimeRange(requests, dto.date1, dto.date2));
+        return ResponseEntity.ok().body(RequestRows.of(_timeService.filterByDateTimeRange(requests, dto.date1, dto.date2)));
     }
 
     @GetMapping("/get-requests-order-by-date-quarter/{numberOfQuarter}")
@@ -415,14 +524,21 @@ public class RequestController {
     public ResponseEntity<?> getRequestsOrderByDateQuarter(
             @Parameter(description = "Номер квартала (1-4)", required = true)
             @PathVariable int numberOfQuarter,
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
             HttpServletRequest request){
+        if(fields != null) {
+            if(numberOfQuarter < 1 || numberOfQuarter > 4)
+                return ResponseEntity.badRequest().body("quarter must be between 1 and 4");
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    null, RequestStatuses.APPROVING, null, numberOfQuarter));
+        }
 
-        var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+        var requests = requestReadService.findApprovalQueue(Long.parseLong(request.getHeader("X-Company-Id")));
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
-        requests = requests.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVING).toList();
 
-        return ResponseEntity.ok().body(_timeService.filterByQuarter(requests, numberOfQuarter));
+        return ResponseEntity.ok().body(RequestRows.of(_timeService.filterByQuarter(requests, numberOfQuarter)));
     }
 
     @GetMapping("/get-operations-by-project/{projectName}")
@@ -438,8 +554,14 @@ public class RequestController {
     public ResponseEntity<?> getProjectOperations(
             @Parameter(description = "Название проекта", required = true)
             @PathVariable Long projectId,
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
             HttpServletRequest request){
-        var requests = _requestRepository.findByProjectIdAndCompanyId(projectId, Long.parseLong(request.getHeader("X-Company-Id")));
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    projectId, RequestStatuses.APPROVED, null, null));
+
+        var requests = requestReadService.findByProjectIdAndCompanyId(projectId, Long.parseLong(request.getHeader("X-Company-Id")));
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
 
@@ -447,7 +569,7 @@ public class RequestController {
         if(operations.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
 
-        return ResponseEntity.ok().body(operations);
+        return ResponseEntity.ok().body(RequestRows.of(operations));
     }
 
     @GetMapping("/get-requests-order-by-date-year")
@@ -460,15 +582,22 @@ public class RequestController {
             @ApiResponse(responseCode = "204", description = "Нет данных"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
-    public ResponseEntity<?> getRequestsOrderByYear(HttpServletRequest request){
+    public ResponseEntity<?> getRequestsOrderByYear(
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request){
 
-        var requests = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+        var period = _timeService.getCurrentYearPeriod();
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    null, RequestStatuses.APPROVING, period, null));
+        var requests = requestReadService.findByCompanyIdInPeriod(Long.parseLong(request.getHeader("X-Company-Id")), period);
         if(requests.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         
         requests = requests.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVING).toList();
 
-        return ResponseEntity.ok().body(_timeService.filterByCurrentYear(requests));
+        return ResponseEntity.ok().body(RequestRows.of(_timeService.filterByCurrentYear(requests)));
     }
 
 //    @GetMapping("/get-company-requests")
@@ -499,12 +628,21 @@ public class RequestController {
             @ApiResponse(responseCode = "204", description = "Нет данных"),
             @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
     })
-    public ResponseEntity<?> getCompanyOperations(HttpServletRequest request){
-        var operations = _requestRepository.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
+    public ResponseEntity<?> getCompanyOperations(
+            @Parameter(description = "Поля ответа через запятую, например createdAt,nameOfCounterparty,sum. Без параметра возвращаются заявки целиком")
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request){
+        if(fields != null)
+            return findFields(fields, new RequestFilter(Long.parseLong(request.getHeader("X-Company-Id")),
+                    null, RequestStatuses.APPROVED, null, null));
+
+        var operations = requestReadService.findByCompanyId(Long.parseLong(request.getHeader("X-Company-Id")));
         if(operations.isEmpty())
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
 
-        return ResponseEntity.ok().body(operations.stream().filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVED));
+        return ResponseEntity.ok().body(RequestRows.of(operations.stream()
+                .filter(x -> x.getApprovedStatus() == RequestStatuses.APPROVED)
+                .toList()));
     }
 
     @GetMapping("/get-project-statistic/{projectName}")
@@ -520,18 +658,31 @@ public class RequestController {
     })
     public ResponseEntity<?> getProjectStatistic(
             @Parameter(description = "Название проекта", required = true)
-            @PathVariable Long projectId,
+            @PathVariable("projectName") Long projectId,
             HttpServletRequest request){
 
-        var projectOperations = _requestRepository.findByProjectIdAndCompanyId(projectId, Long.parseLong(request.getHeader("X-Company-Id")));
-        StatDTO stat = new StatDTO();
-        stat.setRevenue(projectOperations.stream().filter(x -> x.getSum() > 0).mapToDouble(x -> x.getSum()).sum());
-        stat.setProfit(projectOperations.stream().mapToDouble(x -> x.getSum()).sum());
-        stat.setCountOfOperations(projectOperations.stream().count());
+        // считается по дневным итогам, а не по всем операциям проекта
+        StatDTO stat = statisticRollupService.getProjectStatistic(Long.parseLong(request.getHeader("X-Company-Id")), projectId);
 
         return ResponseEntity.ok().body(stat);
     }
 
+    // ответ только с выбранными полями, колонки отбираются прямо в SQL
+    private ResponseEntity<?> findFields(String fields, RequestFilter filter){
+        Set<RequestFields> selected;
+        try{
+            selected = RequestFields.parse(fields);
+        } catch(IllegalArgumentException ex){
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+
+        var rows = requestReadService.findFields(selected, filter);
+        if(rows.isEmpty())
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+
+        return ResponseEntity.ok().body(rows);
+    }
+
 }
 
 
@@ -542,4 +693,4 @@ public class RequestController {
 /// TODO : СДЕЛАТЬ ВАЛИДАЦИЮ НА СТАТУС ЗАЯВКИ  (ЕСЛИ ПОПЫТАТЬСЯ ПОВТОРНО АПРУВНУТЬ АПРУВНУТУЮ ЗАЯВКУ) //есть
 /// TODO : СДЕЛАТЬ ФИЛЬТРАЦИЮ ПО МЕСЯЦУ //есть
 
-///TODO : ДОБАВИТЬ БЛОКИ СТАТИСТИКИ
+///TODO : ДОБАВИТЬ БЛОКИ СТАТИСТИКИ //есть
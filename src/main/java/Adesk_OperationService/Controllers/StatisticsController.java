@@ -0,0 +1,446 @@
+package Adesk_OperationService.Controllers;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ActivityHistogramDTO;
+import Adesk_OperationService.Model.CashFlowDTO;
+import Adesk_OperationService.Model.ColumnarStatisticDTO;
+import Adesk_OperationService.Model.OperationModel.Request.SortByDateDTO;
+import Adesk_OperationService.Model.Period;
+import Adesk_OperationService.Model.PeriodStatisticDTO;
+import Adesk_OperationService.Model.ProjectLedgerDTO;
+import Adesk_OperationService.Model.StatisticsBlocksDTO;
+import Adesk_OperationService.Model.TopOperationRow;
+import Adesk_OperationService.Services.ColumnarSnapshotService;
+import Adesk_OperationService.Services.ProjectLedgerService;
+import Adesk_OperationService.Services.StatisticRollupService;
+import Adesk_OperationService.Services.StatisticsService;
+import Adesk_OperationService.Services.TimeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+@RestController
+@RequestMapping("/requests")
+@RequiredArgsConstructor
+@Tag(name = "Статистика", description = "API для блоков статистики и аналитики по операциям")
+@SecurityRequirement(name = "bearerAuth")
+public class StatisticsController {
+    private final Logger log = LoggerFactory.getLogger(StatisticsController.class);
+    private static final int MAX_CASH_FLOW_BUCKETS = 1000;
+    private static final int MAX_TOP_OPERATIONS = 100;
+    private final StatisticsService statisticsService;
+    private final StatisticRollupService statisticRollupService;
+    private final ProjectLedgerService projectLedgerService;
+    private final TimeService timeService;
+    private final ColumnarSnapshotService columnarSnapshotService;
+
+    @GetMapping("/get-statistics-blocks")
+    @Operation(
+            summary = "Получение блоков статистики",
+            description = "Возвращает итоги по типу операции, проекту, контрагенту, месяцу и статусу для текущей компании"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статистика успешно получена",
+                    content = @Content(schema = @Schema(implementation = StatisticsBlocksDTO.class))),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getStatisticsBlocks(HttpServletRequest request){
+        try{
+            return ResponseEntity.ok().body(statisticsService.getStatisticsBlocks(Long.parseLong(request.getHeader("X-Company-Id"))));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-period-statistic/{period}")
+    @Operation(
+            summary = "Получение статистики за период",
+            description = "Возвращает итоги за сегодня, неделю, месяц, квартал или год в разрезе проекта, типа операции и статуса. Считается по дневным итогам"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статистика успешно получена",
+                    content = @Content(schema = @Schema(implementation = PeriodStatisticDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Неизвестный период"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getPeriodStatistic(
+            @Parameter(description = "Период: today, week, month, quarter или year", required = true)
+            @PathVariable String period,
+            HttpServletRequest request){
+        Period bounds = resolvePeriod(period, ZoneId.systemDefault());
+        if(bounds == null)
+            return ResponseEntity.badRequest().body("unknown period");
+
+        try{
+            return ResponseEntity.ok().body(statisticRollupService.getPeriodStatistic(Long.parseLong(request.getHeader("X-Company-Id")), bounds));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @PostMapping("/get-period-statistic-by-dates")
+    @Operation(
+            summary = "Получение статистики по диапазону дат",
+            description = "Возвращает итоги за указанный диапазон, расширенный до целых дней. Считается по дневным итогам"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статистика успешно получена",
+                    content = @Content(schema = @Schema(implementation = PeriodStatisticDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Невалидные даты"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getPeriodStatisticByDates(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Диапазон дат",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = SortByDateDTO.class))
+            )
+            @RequestBody SortByDateDTO dto,
+            HttpServletRequest request){
+        if(!dto.isValid())
+            return ResponseEntity.badRequest().body("dto is invalid");
+
+        Period period;
+        try{
+            period = timeService.getPeriod(dto.date1, dto.date2);
+        } catch(Exception ex){
+            return ResponseEntity.badRequest().body("dto is invalid");
+        }
+
+        try{
+            return ResponseEntity.ok().body(statisticRollupService.getPeriodStatistic(Long.parseLong(request.getHeader("X-Company-Id")), period));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @PostMapping("/rebuild-statistic-rollups")
+    @Operation(
+            summary = "Пересчет дневных итогов",
+            description = "Пересчитывает дневные итоги компании с нуля по всем операциям, включая архив. Требуется право REQUEST_WORK"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Итоги пересчитаны"),
+            @ApiResponse(responseCode = "401", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> rebuildStatisticRollups(HttpServletRequest request){
+        if(!Arrays.stream(request.getHeader("X-User-Permissions").split(",")).anyMatch(s -> s.equals("REQUEST_WORK")))
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("no rights");
+
+        try{
+            int rows = statisticRollupService.rebuild(Long.parseLong(request.getHeader("X-Company-Id")));
+            return ResponseEntity.ok().body("rebuilt " + rows + " daily rollups");
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-project-ledger/{projectId}")
+    @Operation(
+            summary = "Выписка по проекту",
+            description = "Возвращает утвержденные операции проекта по порядку с балансом после каждой операции. Даты в формате yyyy-MM-dd, включительно"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Выписка успешно получена",
+                    content = @Content(schema = @Schema(implementation = ProjectLedgerDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Невалидные даты"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getProjectLedger(
+            @Parameter(description = "ID проекта", required = true)
+            @PathVariable Long projectId,
+            @Parameter(description = "Первый день выписки, по умолчанию с начала истории")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "Последний день выписки, по умолчанию сегодня")
+            @RequestParam(required = false) String to,
+            HttpServletRequest request){
+        LocalDate fromDate;
+        LocalDate toDate;
+        try{
+            fromDate = from == null ? null : LocalDate.parse(from);
+            toDate = to == null ? null : LocalDate.parse(to);
+        } catch(DateTimeParseException ex){
+            return ResponseEntity.badRequest().body("dates must be in format yyyy-MM-dd");
+        }
+        if(fromDate != null && toDate != null && fromDate.isAfter(toDate))
+            return ResponseEntity.badRequest().body("from cannot be after to");
+
+        try{
+            return ResponseEntity.ok().body(projectLedgerService.getLedger(Long.parseLong(request.getHeader("X-Company-Id")), projectId, fromDate, toDate));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-project-balance/{projectId}")
+    @Operation(
+            summary = "Баланс проекта на дату",
+            description = "Возвращает сумму утвержденных операций проекта по конец указанного дня (yyyy-MM-dd), по умолчанию на сегодня"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Баланс успешно получен"),
+            @ApiResponse(responseCode = "400", description = "Невалидная дата"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getProjectBalance(
+            @Parameter(description = "ID проекта", required = true)
+            @PathVariable Long projectId,
+            @Parameter(description = "День, на конец которого нужен баланс")
+            @RequestParam(required = false) String date,
+            HttpServletRequest request){
+        LocalDate day;
+        try{
+            day = date == null ? LocalDate.now() : LocalDate.parse(date);
+        } catch(DateTimeParseException ex){
+            return ResponseEntity.badRequest().body("date must be in format yyyy-MM-dd");
+        }
+
+        try{
+            return ResponseEntity.ok().body(projectLedgerService.getBalanceAt(Long.parseLong(request.getHeader("X-Company-Id")), projectId, day));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-cash-flow")
+    @Operation(
+            summary = "Денежный поток по дням, неделям или месяцам",
+            description = "Возвращает поступления, выплаты, итог и количество утвержденных операций компании или проекта по корзинам без пропусков. Даты в формате yyyy-MM-dd, включительно"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Денежный поток успешно получен",
+                    content = @Content(schema = @Schema(implementation = CashFlowDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Невалидные параметры или слишком много корзин"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getCashFlow(
+            @Parameter(description = "Шаг: day, week или month")
+            @RequestParam(defaultValue = "day") String granularity,
+            @Parameter(description = "Первый день, по умолчанию год назад")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "Последний день, по умолчанию сегодня")
+            @RequestParam(required = false) String to,
+            @Parameter(description = "ID проекта, по умолчанию вся компания")
+            @RequestParam(required = false) Long projectId,
+            @Parameter(description = "Временная зона компании, например Europe/Moscow. По умолчанию зона сервера")
+            @RequestParam(required = false) String zone,
+            HttpServletRequest request){
+        var unit = StatisticsService.CASH_FLOW_GRANULARITIES.get(granularity);
+        if(unit == null)
+            return ResponseEntity.badRequest().body("granularity must be day, week or month");
+
+        ZoneId zoneId;
+        LocalDate toDate;
+        LocalDate fromDate;
+        try{
+            zoneId = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+            toDate = to == null ? LocalDate.now(zoneId) : LocalDate.parse(to);
+            fromDate = from == null ? toDate.minusYears(1).plusDays(1) : LocalDate.parse(from);
+        } catch(DateTimeException ex){
+            return ResponseEntity.badRequest().body("invalid zone or dates (yyyy-MM-dd)");
+        }
+        if(fromDate.isAfter(toDate))
+            return ResponseEntity.badRequest().body("from cannot be after to");
+        if(unit.between(fromDate, toDate) + 1 > MAX_CASH_FLOW_BUCKETS)
+            return ResponseEntity.badRequest().body("too many buckets, max " + MAX_CASH_FLOW_BUCKETS);
+
+        try{
+            return ResponseEntity.ok().body(statisticsService.getCashFlow(Long.parseLong(request.getHeader("X-Company-Id")),
+                    projectId, granularity, zoneId, fromDate, toDate));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-top-operations")
+    @Operation(
+            summary = "Крупнейшие операции за период",
+            description = "Возвращает N крупнейших утвержденных операций за период с фильтрами по проекту и типу операции. Диапазон from-to (yyyy-MM-dd, включительно) заменяет period"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Операции успешно получены",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TopOperationRow.class)))),
+            @ApiResponse(responseCode = "400", description = "Невалидные параметры"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getTopOperations(
+            @Parameter(description = "Период: today, week, month, quarter или year")
+            @RequestParam(defaultValue = "quarter") String period,
+            @Parameter(description = "Первый день диапазона вместо period")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "Последний день диапазона вместо period")
+            @RequestParam(required = false) String to,
+            @Parameter(description = "ID проекта, по умолчанию все проекты")
+            @RequestParam(required = false) Long projectId,
+            @Parameter(description = "Тип операции, по умолчанию любой")
+            @RequestParam(required = false) String typeOfOperation,
+            @Parameter(description = "outflow - выплаты, income - поступления, any - по модулю суммы")
+            @RequestParam(defaultValue = "outflow") String direction,
+            @Parameter(description = "Сколько операций вернуть (до 100)")
+            @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Временная зона компании, например Europe/Moscow. Границы period и from-to считаются в ней. По умолчанию зона сервера")
+            @RequestParam(required = false) String zone,
+            HttpServletRequest request){
+        if(limit < 1 || limit > MAX_TOP_OPERATIONS)
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_TOP_OPERATIONS);
+        if(!StatisticsService.TOP_OPERATION_DIRECTIONS.contains(direction))
+            return ResponseEntity.badRequest().body("direction must be outflow, income or any");
+
+        Period bounds;
+        try{
+            bounds = resolveRange(period, from, to, zone == null ? ZoneId.systemDefault() : ZoneId.of(zone));
+        } catch(IllegalArgumentException | DateTimeException ex){
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+
+        try{
+            return ResponseEntity.ok().body(statisticsService.getTopOperations(Long.parseLong(request.getHeader("X-Company-Id")),
+                    bounds, projectId, typeOfOperation, direction, limit));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-activity-histogram")
+    @Operation(
+            summary = "Активность по часам и дням недели",
+            description = "Возвращает количество и сумму заявок за период в сетке 7 дней недели (с понедельника) на 24 часа в указанной временной зоне. Диапазон from-to (yyyy-MM-dd, включительно) заменяет period"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Гистограмма успешно получена",
+                    content = @Content(schema = @Schema(implementation = ActivityHistogramDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Невалидные параметры"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getActivityHistogram(
+            @Parameter(description = "Период: today, week, month, quarter или year")
+            @RequestParam(defaultValue = "month") String period,
+            @Parameter(description = "Первый день диапазона вместо period")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "Последний день диапазона вместо period")
+            @RequestParam(required = false) String to,
+            @Parameter(description = "Временная зона компании, например Europe/Moscow. Границы period и from-to считаются в ней. По умолчанию зона сервера")
+            @RequestParam(required = false) String zone,
+            HttpServletRequest request){
+        ZoneId zoneId;
+        Period bounds;
+        try{
+            zoneId = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+            bounds = resolveRange(period, from, to, zoneId);
+        } catch(IllegalArgumentException | DateTimeException ex){
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+
+        try{
+            return ResponseEntity.ok().body(statisticsService.getActivityHistogram(Long.parseLong(request.getHeader("X-Company-Id")), bounds, zoneId));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    @GetMapping("/get-columnar-statistic")
+    @Operation(
+            summary = "Итоги за период по снимку в памяти",
+            description = "Считает итоги компании в разрезе проекта, типа операции, контрагента и статуса по колоночному снимку в памяти, без запросов к БД. Доступно, если снимки включены для компании (app.columnar). Диапазон from-to (yyyy-MM-dd, включительно) заменяет period"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Итоги успешно получены",
+                    content = @Content(schema = @Schema(implementation = ColumnarStatisticDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Невалидные параметры или снимки отключены для компании"),
+            @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера")
+    })
+    public ResponseEntity<?> getColumnarStatistic(
+            @Parameter(description = "Период: today, week, month, quarter или year")
+            @RequestParam(defaultValue = "month") String period,
+            @Parameter(description = "Первый день диапазона вместо period")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "Последний день диапазона вместо period")
+            @RequestParam(required = false) String to,
+            @Parameter(description = "Временная зона компании, например Europe/Moscow. Границы period и from-to считаются в ней. По умолчанию зона сервера")
+            @RequestParam(required = false) String zone,
+            @Parameter(description = "ID проекта, по умолчанию все проекты")
+            @RequestParam(required = false) Long projectId,
+            @Parameter(description = "Статус заявки APPROVED или APPROVING, по умолчанию все. Отклоненные заявки удалены и в итоги не входят")
+            @RequestParam(required = false) RequestStatuses status,
+            HttpServletRequest request){
+        Long companyId = Long.parseLong(request.getHeader("X-Company-Id"));
+        if(!columnarSnapshotService.isEnabledFor(companyId))
+            return ResponseEntity.badRequest().body("columnar statistic is disabled for company");
+        if(status == RequestStatuses.DISAPPROVED)
+            return ResponseEntity.badRequest().body("disapproved requests are deleted and not counted");
+
+        Period bounds;
+        try{
+            ZoneId zoneId = zone == null ? ZoneId.systemDefault() : ZoneId.of(zone);
+            bounds = resolveRange(period, from, to, zoneId);
+        } catch(IllegalArgumentException | DateTimeException ex){
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+
+        try{
+            return ResponseEntity.ok().body(columnarSnapshotService.aggregate(companyId, bounds, projectId, status));
+        } catch(Exception ex){
+            log.error(ex.getMessage());
+            return ResponseEntity.status(500).body("Logic error");
+        }
+    }
+
+    // диапазон from-to (yyyy-MM-dd, включительно) или именованный период TimeService, оба в зоне zone
+    private Period resolveRange(String period, String from, String to, ZoneId zone){
+        if(from == null && to == null){
+            Period bounds = resolvePeriod(period, zone);
+            if(bounds == null)
+                throw new IllegalArgumentException("unknown period");
+            return bounds;
+        }
+        if(from == null || to == null)
+            throw new IllegalArgumentException("from and to must be passed together");
+
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        if(fromDate.isAfter(toDate))
+            throw new IllegalArgumentException("from cannot be after to");
+        return new Period(fromDate.atStartOfDay(zone), toDate.plusDays(1).atStartOfDay(zone));
+    }
+
+    // сутки, неделя, месяц, квартал и год начинаются в полночь зоны клиента
+    private Period resolvePeriod(String period, ZoneId zone){
+        return switch (period) {
+            case "today" -> timeService.getTodayPeriod(zone);
+            case "week" -> timeService.getCurrentWeekPeriod(zone);
+            case "month" -> timeService.getCurrentMonthPeriod(zone);
+            case "quarter" -> timeService.getCurrentQuarterPeriod(zone);
+            case "year" -> timeService.getCurrentYearPeriod(zone);
+            default -> null;
+        };
+    }
+}
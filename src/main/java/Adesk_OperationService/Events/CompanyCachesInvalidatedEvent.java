@@ -0,0 +1,11 @@
+package Adesk_OperationService.Events;
+
+import java.util.Set;
+
+// заявки компании изменились на другом экземпляре сервиса.
+// companyId == null - уведомления могли потеряться, сбросить кэши всех компаний;
+// requestIds == null - измененные заявки неизвестны, сбросить все заявки компании
+public record CompanyCachesInvalidatedEvent(
+        Long companyId,
+        Set<Long> requestIds
+) {}
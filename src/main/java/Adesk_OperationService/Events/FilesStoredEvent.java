@@ -0,0 +1,9 @@
+package Adesk_OperationService.Events;
+
+import java.util.List;
+
+// публикуется после сохранения заявки с вложениями
+public record FilesStoredEvent(
+        Long requestId,
+        List<Long> fileIds
+) {}
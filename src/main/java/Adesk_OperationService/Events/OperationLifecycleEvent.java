@@ -0,0 +1,22 @@
+package Adesk_OperationService.Events;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+
+import java.time.ZonedDateTime;
+
+// внутреннее событие жизненного цикла заявки, копия записи outbox
+public record OperationLifecycleEvent(
+        Long sequence,
+        OperationEventTypes type,
+        Long companyId,
+        Long requestId,
+        Long projectId,
+        String typeOfOperation,
+        String nameOfCounterparty,
+        Long sum,
+        ZonedDateTime operationCreatedAt,
+        RequestStatuses previousStatus,
+        RequestStatuses status,
+        String actorEmail
+) {}
@@ -0,0 +1,15 @@
+package Adesk_OperationService.Model;
+
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+
+@Data
+public class ActivityHistogramDTO {
+    public String zone;
+    public ZonedDateTime from; //включительно
+    public ZonedDateTime to;   //не включительно
+    public long[][] counts = new long[7][24]; //[день недели с понедельника][час]
+    public long[][] sums = new long[7][24];
+    public long totalCount;
+}
@@ -0,0 +1,9 @@
+package Adesk_OperationService.Model;
+
+// ячейка гистограммы: день недели 1-7 (с понедельника) и час 0-23
+public interface ActivityHistogramRow {
+    Integer getWeekday();
+    Integer getHour();
+    Long getCount();
+    Long getTotal();
+}
@@ -0,0 +1,39 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApprovalQueueDeltaDTO {
+    public Long sequence; //совпадает с курсором ленты get-operation-events
+    public OperationEventTypes type;
+    public Long requestId;
+    public Long projectId;
+    public String typeOfOperation;
+    public String nameOfCounterparty;
+    public Long sum;
+    public ZonedDateTime createdAt;
+    public RequestStatuses status;
+
+    public static ApprovalQueueDeltaDTO from(OperationLifecycleEvent event) {
+        return new ApprovalQueueDeltaDTO(
+                event.sequence(),
+                event.type(),
+                event.requestId(),
+                event.projectId(),
+                event.typeOfOperation(),
+                event.nameOfCounterparty(),
+                event.sum(),
+                event.operationCreatedAt(),
+                event.status()
+        );
+    }
+}
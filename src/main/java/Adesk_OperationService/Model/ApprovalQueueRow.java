@@ -0,0 +1,22 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+
+import java.time.ZonedDateTime;
+
+// заявка очереди согласования без файлов
+public interface ApprovalQueueRow {
+    Long getId();
+    String getDescription();
+    String getTypeOfOperation();
+    Long getProjectId();
+    String getNameOfCounterparty();
+    Long getSum();
+    ZonedDateTime getCreatedAt();
+    Long getCompanyId();
+    String getCreatorLogin();
+    String getCreatorEmail();
+    String getResponsibleManager();
+    RequestStatuses getApprovedStatus();
+    Long getVersion();
+}
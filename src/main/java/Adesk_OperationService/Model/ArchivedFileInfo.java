@@ -0,0 +1,10 @@
+package Adesk_OperationService.Model;
+
+// метаданные архивного файла без содержимого
+public interface ArchivedFileInfo {
+    Long getId();
+    Long getRequestId();
+    String getOriginalFilename();
+    Long getFileSize();
+    String getHref();
+}
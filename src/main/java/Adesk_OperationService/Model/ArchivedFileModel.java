@@ -0,0 +1,50 @@
+package Adesk_OperationService.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// вложение архивной операции, content хранится сжатым gzip
+@Entity
+@Data
+@Table(name = "files_archive")
+public class ArchivedFileModel implements Persistable<Long> {
+    @Id
+    private Long id; //id сохраняется, чтобы старые ссылки download-file продолжали работать
+
+    @Column(name = "original_filename", nullable = false, length = 500)
+    private String originalFilename;
+
+    @Column(name = "stored_filename", length = 255)
+    private String storedFilename;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "content", columnDefinition = "bytea")
+    private byte[] content;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "request_id", nullable = false)
+    private Long requestId;
+
+    @Column(name = "uploaded_at")
+    private LocalDateTime uploadedAt;
+
+    @Column(name = "href")
+    private String href;
+
+    // в архив записи только добавляются, поэтому save сразу делает insert без лишнего select
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.data.domain.Persistable;
+
+import java.time.ZonedDateTime;
+
+// утвержденная операция, перенесенная из requests в холодный архив
+@Entity
+@Data
+@Table(name = "requests_archive")
+public class ArchivedRequestModel implements Persistable<Long> {
+    @Id
+    private Long id; //id сохраняется, чтобы ссылки на операцию не менялись
+
+    @Column(name = "description")
+    private String description;
+
+    @Column(name = "type_of_operation")
+    private String typeOfOperation;
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(name = "name_of_counterparty")
+    private String nameOfCounterparty;
+
+    @Column(name = "sum")
+    private Long sum;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "creator_login")
+    private String creatorLogin;
+
+    @Column(name = "creator_email")
+    private String creatorEmail;
+
+    @Column(name = "responsible_manager")
+    private String responsibleManager;
+
+    @Column(name = "approved_status")
+    @Enumerated(EnumType.STRING)
+    private RequestStatuses approvedStatus;
+
+    @Column(name = "archived_at", nullable = false)
+    private ZonedDateTime archivedAt;
+
+    // в архив записи только добавляются, поэтому save сразу делает insert без лишнего select
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
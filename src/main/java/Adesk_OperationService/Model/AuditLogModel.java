@@ -0,0 +1,45 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+
+// запись журнала действий, только для чтения: пишет AuditLogService пачками через jdbc
+@Entity
+@Data
+@Table(name = "request_audit_log")
+public class AuditLogModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "request_id", nullable = false)
+    private Long requestId;
+
+    @Column(name = "action", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OperationEventTypes action;
+
+    @Column(name = "actor_email")
+    private String actorEmail;
+
+    @Column(name = "previous_status")
+    @Enumerated(EnumType.STRING)
+    private RequestStatuses previousStatus;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private RequestStatuses status;
+
+    @Column(name = "sum")
+    private Long sum;
+
+    @Column(name = "occurred_at", nullable = false)
+    private ZonedDateTime occurredAt;
+}
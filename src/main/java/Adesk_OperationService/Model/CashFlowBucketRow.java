@@ -0,0 +1,10 @@
+package Adesk_OperationService.Model;
+
+// одна корзина денежного потока: начало дня, недели или месяца в запрошенной временной зоне
+public interface CashFlowBucketRow {
+    String getBucketStart(); //yyyy-MM-dd
+    Long getIncome();
+    Long getOutflow(); //сумма отрицательных операций, не больше нуля
+    Long getNet();
+    Long getCount();
+}
@@ -0,0 +1,17 @@
+package Adesk_OperationService.Model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CashFlowDTO {
+    public String granularity; //day - week - month
+    public String zone;
+    public Long projectId; //null - вся компания
+    public LocalDate from; //включительно
+    public LocalDate to;   //включительно
+    public List<CashFlowBucketRow> buckets = new ArrayList<>();
+}
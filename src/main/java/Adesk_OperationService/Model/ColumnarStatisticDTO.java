@@ -0,0 +1,20 @@
+package Adesk_OperationService.Model;
+
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ColumnarStatisticDTO {
+    public ZonedDateTime from; //включительно
+    public ZonedDateTime to;   //не включительно
+    public StatBlockItemDTO total;
+    public List<StatBlockItemDTO> byProject = new ArrayList<>();
+    public List<StatBlockItemDTO> byTypeOfOperation = new ArrayList<>();
+    public List<StatBlockItemDTO> byCounterparty = new ArrayList<>();
+    public List<StatBlockItemDTO> byStatus = new ArrayList<>();
+    public long snapshotRows;     //строк в снимке компании, включая удаленные
+    public long snapshotSequence; //последнее учтенное событие outbox
+}
@@ -0,0 +1,17 @@
+package Adesk_OperationService.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// счетчик событий компании, строка блокируется до конца транзакции изменения
+@Entity
+@Data
+@Table(name = "company_event_sequences")
+public class CompanyEventSequenceModel {
+    @Id
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+}
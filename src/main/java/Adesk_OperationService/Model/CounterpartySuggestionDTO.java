@@ -0,0 +1,14 @@
+package Adesk_OperationService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CounterpartySuggestionDTO {
+    public String name;
+    public long frequency; //в скольких заявках встречался
+    public long lastUsedEpoch; //секунды
+}
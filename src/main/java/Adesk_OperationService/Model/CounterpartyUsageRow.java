@@ -0,0 +1,8 @@
+package Adesk_OperationService.Model;
+
+// как часто и когда последний раз контрагент встречался в заявках компании
+public interface CounterpartyUsageRow {
+    String getName();
+    Long getFrequency();
+    Long getLastUsedEpoch(); //секунды
+}
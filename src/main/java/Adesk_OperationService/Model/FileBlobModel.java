@@ -0,0 +1,29 @@
+package Adesk_OperationService.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+
+// содержимое вложения, общее для всех файлов с тем же sha256. Изменяется только нативными запросами FileBlobRepository
+@Entity
+@Data
+@Table(name = "file_blobs")
+public class FileBlobModel {
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Basic(fetch = FetchType.EAGER)
+    @Column(name = "content", columnDefinition = "bytea", nullable = false)
+    private byte[] content;
+
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+}
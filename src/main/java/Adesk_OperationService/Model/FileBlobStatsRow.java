@@ -0,0 +1,9 @@
+package Adesk_OperationService.Model;
+
+// объем вложений: logicalBytes - как если бы каждая ссылка хранила свою копию, storedBytes - реально хранится
+public interface FileBlobStatsRow {
+    Long getBlobs();
+    Long getReferenceCount();
+    Long getStoredBytes();
+    Long getLogicalBytes();
+}
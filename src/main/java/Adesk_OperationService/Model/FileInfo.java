@@ -0,0 +1,11 @@
+package Adesk_OperationService.Model;
+
+// метаданные файла заявки без содержимого и превью
+public interface FileInfo {
+    Long getId();
+    Long getRequestId();
+    String getOriginalFilename();
+    Long getFileSize();
+    String getHref();
+    String getPreviewHref();
+}
@@ -23,7 +23,7 @@ public class FileModel {
     private String originalFilename;
 
     @JsonIgnore
-    @Column(name = "stored_filename", unique = true, length = 255)
+    @Column(name = "stored_filename", length = 255)
     private String storedFilename;
 
     @JsonIgnore
@@ -34,7 +34,12 @@ public class FileModel {
     @JsonIgnore
     @Basic(fetch = FetchType.EAGER)
     @Column(name = "content", columnDefinition = "bytea")
-    private byte[] content;
+    private byte[] content; //только у файлов, загруженных до file_blobs
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "content_sha256")
+    private FileBlobModel blob; //общее содержимое одинаковых вложений
 
     @JsonIgnore
     @Column(name = "user_email", nullable = false)
@@ -46,7 +51,7 @@ public class FileModel {
 
     @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "request_id", nullable = false)
+    @JoinColumn(name = "request_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT)) //requests секционирована, FK невозможен
     private RequestModel request;
 
     @JsonIgnore
@@ -60,11 +65,26 @@ public class FileModel {
     @Column(name = "href")
     private String href;
 
+    @Column(name = "preview_href")
+    private String previewHref; //само превью в file_previews, грузится только эндпоинтом превью
+
     @PostPersist
     protected void generateHref(){
         if(this.href == null && this.id != null){
             this.href = "https://gateway.marinafin.ru/api/gateway/requests/download-file/" + this.id; //создаю ссылку уже после закачивания в БД
         }
+        if(this.previewHref == null && this.id != null && isPreviewable()){
+            this.previewHref = "https://gateway.marinafin.ru/api/gateway/requests/download-file-preview/" + this.id;
+        }
+    }
+
+    // превью умеем строить только для картинок, которые читает ImageIO, и для pdf
+    @JsonIgnore
+    public boolean isPreviewable() {
+        if (originalFilename == null) return false;
+        String name = originalFilename.toLowerCase();
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg") ||
+                name.endsWith(".gif") || name.endsWith(".bmp") || name.endsWith(".pdf");
     }
 
     @PrePersist
@@ -86,6 +106,16 @@ public class FileModel {
         return UUID.randomUUID().toString() + extension;
     }
 
+    @JsonIgnore
+    public byte[] getContent() {
+        return blob != null ? blob.getContent() : content;
+    }
+
+    @JsonIgnore
+    public String getContentSha256() {
+        return blob != null ? blob.getSha256() : null;
+    }
+
     public String getFileSizeFormatted() {
         if (fileSize < 1024) return fileSize + " B";
         int exp = (int) (Math.log(fileSize) / Math.log(1024));
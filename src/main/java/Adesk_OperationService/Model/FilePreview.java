@@ -0,0 +1,7 @@
+package Adesk_OperationService.Model;
+
+// проекция превью файла, чтобы не тянуть оригинал из БД
+public interface FilePreview {
+    byte[] getPreviewContent();
+    String getPreviewContentType();
+}
@@ -0,0 +1,25 @@
+package Adesk_OperationService.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+
+// уменьшенная копия вложения для списков, генерируется асинхронно. Читается только эндпоинтом превью
+@Entity
+@Data
+@Table(name = "file_previews")
+public class FilePreviewModel {
+    @Id
+    @Column(name = "file_id")
+    private Long fileId;
+
+    @Column(name = "content", columnDefinition = "bytea", nullable = false)
+    private byte[] content;
+
+    @Column(name = "content_type", length = 100, nullable = false)
+    private String contentType;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private ZonedDateTime createdAt;
+}
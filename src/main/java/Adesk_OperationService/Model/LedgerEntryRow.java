@@ -0,0 +1,14 @@
+package Adesk_OperationService.Model;
+
+import java.time.OffsetDateTime;
+
+// утвержденная операция проекта с балансом после нее
+public interface LedgerEntryRow {
+    Long getId();
+    OffsetDateTime getCreatedAt();
+    String getTypeOfOperation();
+    String getNameOfCounterparty();
+    String getDescription();
+    Long getSum();
+    Long getBalance();
+}
@@ -0,0 +1,61 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+
+// запись outbox: пишется в той же транзакции, что и изменение заявки
+@Entity
+@Data
+@Table(name = "operation_events",
+        uniqueConstraints = @UniqueConstraint(name = "uq_operation_events_company_sequence", columnNames = {"company_id", "sequence"}))
+public class OperationEventModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "sequence", nullable = false)
+    private Long sequence; //сквозной номер события внутри компании, служит курсором
+
+    @Column(name = "event_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OperationEventTypes eventType;
+
+    @Column(name = "request_id", nullable = false)
+    private Long requestId;
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(name = "type_of_operation")
+    private String typeOfOperation;
+
+    @Column(name = "name_of_counterparty")
+    private String nameOfCounterparty;
+
+    @Column(name = "sum")
+    private Long sum;
+
+    @Column(name = "operation_created_at")
+    private ZonedDateTime operationCreatedAt;
+
+    @Column(name = "previous_status")
+    @Enumerated(EnumType.STRING)
+    private RequestStatuses previousStatus;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private RequestStatuses status;
+
+    @Column(name = "actor_email")
+    private String actorEmail;
+
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt;
+}
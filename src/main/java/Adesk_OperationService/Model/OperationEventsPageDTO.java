@@ -0,0 +1,16 @@
+package Adesk_OperationService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationEventsPageDTO {
+    public List<OperationEventModel> events;
+    public Long nextCursor; //передать в after при следующем запросе
+    public Boolean hasMore;
+}
@@ -5,6 +5,9 @@ import Adesk_OperationService.Model.FileModel;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +15,8 @@ import java.util.List;
 @Entity
 @Data
 @Table(name = "requests")
+@SQLRestriction("deleted_at IS NULL") //удаленные заявки скрыты от всех чтений до физического удаления
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "requests") //только поля заявки, коллекция files не кэшируется
 public class RequestModel {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -35,8 +40,8 @@ public class RequestModel {
 //    @Column(name = "name")
 //    private String name;
 
-    @Column(name = "created_at")
-    private ZonedDateTime createdAt;
+    @Column(name = "created_at", nullable = false)
+    private ZonedDateTime createdAt; //ключ секционирования таблицы
 
     @Column(name = "company_id")
     private Long companyId;
@@ -54,6 +59,14 @@ public class RequestModel {
     @Enumerated(EnumType.STRING)
     private RequestStatuses approvedStatus;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version; //растет при каждом переходе статуса
+
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private ZonedDateTime deletedAt;
+
 //    @JsonIgnore
     @OneToMany(
             mappedBy = "request",
@@ -0,0 +1,9 @@
+package Adesk_OperationService.Model;
+
+import java.time.ZonedDateTime;
+
+// полуинтервал [from, to) для условий по created_at, по нему postgres отсекает лишние секции
+public record Period(
+        ZonedDateTime from,
+        ZonedDateTime to
+) {}
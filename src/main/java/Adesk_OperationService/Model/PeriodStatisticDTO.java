@@ -0,0 +1,17 @@
+package Adesk_OperationService.Model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class PeriodStatisticDTO {
+    public LocalDate from; //включительно
+    public LocalDate to;   //не включительно
+    public StatBlockItemDTO total;
+    public List<StatBlockItemDTO> byProject = new ArrayList<>();
+    public List<StatBlockItemDTO> byTypeOfOperation = new ArrayList<>(); //income - outcome - transfer
+    public List<StatBlockItemDTO> byStatus = new ArrayList<>();
+}
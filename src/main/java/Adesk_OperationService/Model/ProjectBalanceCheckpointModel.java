@@ -0,0 +1,28 @@
+package Adesk_OperationService.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// баланс проекта по конец месяца: сумма всех утвержденных операций до этого месяца включительно
+@Entity
+@Data
+@Table(name = "project_balance_checkpoints")
+public class ProjectBalanceCheckpointModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(name = "month", nullable = false)
+    private LocalDate month; //первое число месяца
+
+    @Column(name = "balance", nullable = false)
+    private Long balance;
+}
@@ -0,0 +1,17 @@
+package Adesk_OperationService.Model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ProjectLedgerDTO {
+    public Long projectId;
+    public LocalDate from; //включительно, null - с начала
+    public LocalDate to;   //включительно
+    public long openingBalance; //баланс на конец дня перед from
+    public long closingBalance; //баланс на конец дня to
+    public List<LedgerEntryRow> entries = new ArrayList<>();
+}
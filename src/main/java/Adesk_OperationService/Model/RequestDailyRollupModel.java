@@ -0,0 +1,42 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// дневной итог заявок компании по проекту, типу операции и статусу
+@Entity
+@Data
+@Table(name = "request_daily_rollups")
+public class RequestDailyRollupModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(name = "type_of_operation")
+    private String typeOfOperation;
+
+    @Column(name = "approved_status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RequestStatuses approvedStatus;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day; //день в системной временной зоне
+
+    @Column(name = "count", nullable = false)
+    private Long count;
+
+    @Column(name = "total", nullable = false)
+    private Long total;
+
+    @Column(name = "positive_total", nullable = false)
+    private Long positiveTotal;
+}
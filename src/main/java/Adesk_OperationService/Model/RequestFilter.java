@@ -0,0 +1,12 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+
+// условия выборки заявок для ответов с параметром fields, null - условие не применяется
+public record RequestFilter(
+        Long companyId,
+        Long projectId,
+        RequestStatuses status,
+        Period period,
+        Integer quarter
+) {}
@@ -0,0 +1,35 @@
+package Adesk_OperationService.Model;
+
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Список заявок в ответе контроллера. В JSON, CBOR и Smile пишется как обычный массив.
+ * Отдельный тип нужен для выбора формата по Accept: тип элементов обычного списка
+ * стерт, а protobuf умеет кодировать только заявки, поэтому конвертер protobuf
+ * принимает RequestRows и на другие списки отвечает 406
+ */
+public final class RequestRows extends AbstractList<RequestModel> implements RandomAccess {
+    private final List<RequestModel> rows;
+
+    private RequestRows(List<RequestModel> rows) {
+        this.rows = rows;
+    }
+
+    public static RequestRows of(List<RequestModel> rows) {
+        return new RequestRows(List.copyOf(rows));
+    }
+
+    @Override
+    public RequestModel get(int index) {
+        return rows.get(index);
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,11 @@
+package Adesk_OperationService.Model;
+
+// сумма дневных итогов за период в разрезе проекта, типа операции и статуса
+public interface RollupTotalsRow {
+    Long getProjectId();
+    String getTypeOfOperation();
+    String getApprovedStatus();
+    Long getCount();
+    Long getTotal();
+    Long getPositiveTotal();
+}
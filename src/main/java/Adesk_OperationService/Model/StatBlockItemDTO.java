@@ -0,0 +1,16 @@
+package Adesk_OperationService.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatBlockItemDTO {
+    public String key;
+    public long countOfOperations;
+    public long total;   //сумма всех операций (long, без округлений double)
+    public long income;  //сумма положительных операций
+    public long outcome; //сумма отрицательных операций
+}
@@ -0,0 +1,10 @@
+package Adesk_OperationService.Model;
+
+// строка результата GROUPING SETS: block - по какому признаку сгруппировано
+public interface StatisticsBlockRow {
+    String getBlock();
+    String getKey();
+    Long getCount();
+    Long getTotal();
+    Long getIncome();
+}
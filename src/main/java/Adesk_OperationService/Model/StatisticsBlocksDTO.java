@@ -0,0 +1,16 @@
+package Adesk_OperationService.Model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class StatisticsBlocksDTO {
+    public StatBlockItemDTO total;
+    public List<StatBlockItemDTO> byTypeOfOperation = new ArrayList<>(); //income - outcome - transfer
+    public List<StatBlockItemDTO> byProject = new ArrayList<>();
+    public List<StatBlockItemDTO> byCounterparty = new ArrayList<>();
+    public List<StatBlockItemDTO> byMonth = new ArrayList<>();
+    public List<StatBlockItemDTO> byStatus = new ArrayList<>();
+}
@@ -0,0 +1,20 @@
+package Adesk_OperationService.Model;
+
+import java.time.OffsetDateTime;
+
+// заявка после условного перехода статуса, без файлов
+public interface StatusTransitionRow {
+    Long getId();
+    String getDescription();
+    String getTypeOfOperation();
+    Long getProjectId();
+    String getNameOfCounterparty();
+    Long getSum();
+    OffsetDateTime getCreatedAt();
+    Long getCompanyId();
+    String getCreatorLogin();
+    String getCreatorEmail();
+    String getResponsibleManager();
+    String getApprovedStatus();
+    Long getVersion();
+}
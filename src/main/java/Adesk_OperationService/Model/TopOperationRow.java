@@ -0,0 +1,14 @@
+package Adesk_OperationService.Model;
+
+import java.time.OffsetDateTime;
+
+// операция из выборки крупнейших, без файлов
+public interface TopOperationRow {
+    Long getId();
+    OffsetDateTime getCreatedAt();
+    String getTypeOfOperation();
+    Long getProjectId();
+    String getNameOfCounterparty();
+    String getDescription();
+    Long getSum();
+}
@@ -0,0 +1,17 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.ArchivedFileInfo;
+import Adesk_OperationService.Model.ArchivedFileModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedFileRepository extends JpaRepository<ArchivedFileModel, Long> {
+
+    @Query("select f.id as id, f.requestId as requestId, f.originalFilename as originalFilename, " +
+            "f.fileSize as fileSize, f.href as href from ArchivedFileModel f where f.requestId in :requestIds")
+    List<ArchivedFileInfo> findInfoByRequestIdIn(@Param("requestIds") Collection<Long> requestIds);
+}
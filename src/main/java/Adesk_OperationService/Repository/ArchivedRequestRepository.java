@@ -0,0 +1,19 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.ArchivedRequestModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public interface ArchivedRequestRepository extends JpaRepository<ArchivedRequestModel, Long> {
+    List<ArchivedRequestModel> findByCompanyId(Long companyId);
+    List<ArchivedRequestModel> findByProjectIdAndCompanyId(Long projectId, Long companyId);
+
+    @Query("select r from ArchivedRequestModel r where r.companyId = :companyId and r.createdAt >= :from and r.createdAt < :to")
+    List<ArchivedRequestModel> findByCompanyIdInPeriod(@Param("companyId") Long companyId,
+                                                       @Param("from") ZonedDateTime from,
+                                                       @Param("to") ZonedDateTime to);
+}
@@ -0,0 +1,12 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.AuditLogModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface AuditLogRepository extends JpaRepository<AuditLogModel, Long> {
+    List<AuditLogModel> findByCompanyIdOrderByOccurredAtDesc(Long companyId, Limit limit);
+    List<AuditLogModel> findByCompanyIdAndRequestIdOrderByOccurredAtDesc(Long companyId, Long requestId, Limit limit);
+}
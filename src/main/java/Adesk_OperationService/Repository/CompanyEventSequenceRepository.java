@@ -0,0 +1,33 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.CompanyEventSequenceModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface CompanyEventSequenceRepository extends JpaRepository<CompanyEventSequenceModel, Long> {
+
+    // upsert за один запрос: строка счетчика остается заблокированной до коммита,
+    // поэтому события компании коммитятся строго в порядке номеров
+    @Transactional
+    @Query(value = """
+            INSERT INTO company_event_sequences (company_id, last_sequence) VALUES (:companyId, 1)
+            ON CONFLICT (company_id) DO UPDATE SET last_sequence = company_event_sequences.last_sequence + 1
+            RETURNING last_sequence
+            """, nativeQuery = true)
+    Long nextSequence(@Param("companyId") Long companyId);
+
+    // блокирует счетчик компании, не меняя его: пока блокировка держится, новых событий компании нет
+    @Transactional
+    @Query(value = """
+            INSERT INTO company_event_sequences (company_id, last_sequence) VALUES (:companyId, 0)
+            ON CONFLICT (company_id) DO UPDATE SET last_sequence = company_event_sequences.last_sequence
+            RETURNING last_sequence
+            """, nativeQuery = true)
+    Long lockSequence(@Param("companyId") Long companyId);
+
+    // номер последнего события компании, 0 если событий еще не было
+    @Query(value = "SELECT COALESCE((SELECT last_sequence FROM company_event_sequences WHERE company_id = :companyId), 0)", nativeQuery = true)
+    Long lastSequence(@Param("companyId") Long companyId);
+}
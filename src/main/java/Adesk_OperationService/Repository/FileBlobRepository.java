@@ -0,0 +1,63 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.FileBlobModel;
+import Adesk_OperationService.Model.FileBlobStatsRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface FileBlobRepository extends JpaRepository<FileBlobModel, String> {
+
+    // повторная загрузка уже известного содержимого: только счетчик, без передачи bytea
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "file_blobs"))
+    @Query(value = "UPDATE file_blobs SET ref_count = ref_count + 1 WHERE sha256 = :sha256", nativeQuery = true)
+    int addReference(@Param("sha256") String sha256);
+
+    // параллельная загрузка того же нового файла превращается в увеличение счетчика
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "file_blobs"))
+    @Query(value = """
+            INSERT INTO file_blobs (sha256, content, size, ref_count, created_at)
+            VALUES (:sha256, :content, :size, 1, now())
+            ON CONFLICT (sha256) DO UPDATE SET ref_count = file_blobs.ref_count + 1
+            """, nativeQuery = true)
+    int insertOrAddReference(@Param("sha256") String sha256,
+                             @Param("content") byte[] content,
+                             @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "file_blobs"))
+    @Query(value = "UPDATE file_blobs SET ref_count = ref_count - :count WHERE sha256 = :sha256", nativeQuery = true)
+    int releaseReferences(@Param("sha256") String sha256, @Param("count") long count);
+
+    // блоб, на который за это время снова сослались, заблокирован или уже не подходит под условие и не удаляется
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "file_blobs"))
+    @Query(value = """
+            DELETE FROM file_blobs WHERE sha256 IN (
+                SELECT sha256 FROM file_blobs WHERE ref_count <= 0
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int deleteUnreferenced(@Param("limit") int limit);
+
+    @Query(value = """
+            SELECT count(*) AS blobs,
+                   COALESCE(sum(ref_count), 0)::bigint AS referenceCount,
+                   COALESCE(sum(size), 0)::bigint AS storedBytes,
+                   COALESCE(sum(size * ref_count), 0)::bigint AS logicalBytes
+            FROM file_blobs WHERE ref_count > 0
+            """, nativeQuery = true)
+    FileBlobStatsRow findStats();
+}
@@ -0,0 +1,39 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.FilePreview;
+import Adesk_OperationService.Model.FilePreviewModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface FilePreviewRepository extends JpaRepository<FilePreviewModel, Long> {
+
+    // превью файлов удаленных заявок до физического удаления не отдаются
+    @Query("select p.content as previewContent, p.contentType as previewContentType " +
+            "from FilePreviewModel p, FileModel f where f.id = p.fileId and f.id = :fileId and f.request.deletedAt is null")
+    Optional<FilePreview> findVisibleByFileId(@Param("fileId") Long fileId);
+
+    // превью могут строить одновременно фоновая очередь и синхронный запрос, побеждает последний
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "file_previews"))
+    @Query(value = """
+            INSERT INTO file_previews (file_id, content, content_type) VALUES (:fileId, :content, :contentType)
+            ON CONFLICT (file_id) DO UPDATE SET content = EXCLUDED.content, content_type = EXCLUDED.content_type
+            """, nativeQuery = true)
+    int upsert(@Param("fileId") Long fileId, @Param("content") byte[] content, @Param("contentType") String contentType);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "file_previews"))
+    @Query(value = "DELETE FROM file_previews WHERE file_id IN (:fileIds)", nativeQuery = true)
+    int deleteByFileIdIn(@Param("fileIds") Collection<Long> fileIds);
+}
@@ -1,7 +1,22 @@
 package Adesk_OperationService.Repository;
 
+import Adesk_OperationService.Model.FileInfo;
 import Adesk_OperationService.Model.FileModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface FileRepository extends JpaRepository<FileModel, Long> {
+
+    // файлы удаленных заявок до физического удаления не отдаются
+    @Query("select f from FileModel f where f.id = :id and f.request.deletedAt is null")
+    Optional<FileModel> findVisibleById(@Param("id") Long id);
+
+    @Query("select f.id as id, f.request.id as requestId, f.originalFilename as originalFilename, " +
+            "f.fileSize as fileSize, f.href as href, f.previewHref as previewHref from FileModel f where f.request.id in :requestIds")
+    List<FileInfo> findInfoByRequestIdIn(@Param("requestIds") Collection<Long> requestIds);
 }
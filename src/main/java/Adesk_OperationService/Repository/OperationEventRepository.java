@@ -0,0 +1,11 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.OperationEventModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface OperationEventRepository extends JpaRepository<OperationEventModel, Long> {
+    List<OperationEventModel> findByCompanyIdAndSequenceGreaterThanOrderBySequenceAsc(Long companyId, Long sequence, Limit limit);
+}
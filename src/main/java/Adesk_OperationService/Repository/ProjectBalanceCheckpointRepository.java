@@ -0,0 +1,83 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.ProjectBalanceCheckpointModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+// нативные изменения помечены своей таблицей, иначе hibernate сбрасывает весь кэш второго уровня
+public interface ProjectBalanceCheckpointRepository extends JpaRepository<ProjectBalanceCheckpointModel, Long> {
+
+    // точка месяца создается с балансом предыдущей точки, чтобы следующий UPDATE добавил к ней приращение
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "project_balance_checkpoints"))
+    @Query(value = """
+            INSERT INTO project_balance_checkpoints (company_id, project_id, month, balance)
+            VALUES (:companyId, :projectId, :month, COALESCE((
+                SELECT p.balance FROM project_balance_checkpoints p
+                WHERE p.company_id = :companyId AND p.project_id = :projectId AND p.month < :month
+                ORDER BY p.month DESC LIMIT 1), 0))
+            ON CONFLICT (company_id, project_id, month) DO NOTHING
+            """, nativeQuery = true)
+    void ensureCheckpoint(@Param("companyId") Long companyId,
+                          @Param("projectId") Long projectId,
+                          @Param("month") LocalDate month);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "project_balance_checkpoints"))
+    @Query(value = """
+            UPDATE project_balance_checkpoints SET balance = balance + :delta
+            WHERE company_id = :companyId AND project_id = :projectId AND month >= :month
+            """, nativeQuery = true)
+    void addFromMonth(@Param("companyId") Long companyId,
+                      @Param("projectId") Long projectId,
+                      @Param("month") LocalDate month,
+                      @Param("delta") long delta);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "project_balance_checkpoints"))
+    @Query(value = "DELETE FROM project_balance_checkpoints WHERE company_id = :companyId", nativeQuery = true)
+    void deleteByCompany(@Param("companyId") Long companyId);
+
+    // нарастающий итог по месяцам из уже пересчитанных дневных итогов компании
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "project_balance_checkpoints"))
+    @Query(value = """
+            INSERT INTO project_balance_checkpoints (company_id, project_id, month, balance)
+            SELECT company_id, project_id, month, sum(sum(total)) OVER (PARTITION BY project_id ORDER BY month)
+            FROM (
+                SELECT company_id, project_id, date_trunc('month', day)::date AS month, total
+                FROM request_daily_rollups
+                WHERE company_id = :companyId AND approved_status = 'APPROVED' AND project_id IS NOT NULL
+            ) r
+            GROUP BY company_id, project_id, month
+            """, nativeQuery = true)
+    int rebuildCompany(@Param("companyId") Long companyId);
+
+    // одна точка по индексу (company_id, project_id, month) плюс дни внутри месяца
+    @Query(value = """
+            SELECT COALESCE((
+                       SELECT p.balance FROM project_balance_checkpoints p
+                       WHERE p.company_id = :companyId AND p.project_id = :projectId AND p.month < :monthStart
+                       ORDER BY p.month DESC LIMIT 1), 0)
+                 + COALESCE((
+                       SELECT sum(d.total) FROM request_daily_rollups d
+                       WHERE d.company_id = :companyId AND d.project_id = :projectId
+                         AND d.approved_status = 'APPROVED' AND d.day >= :monthStart AND d.day <= :date), 0)
+            """, nativeQuery = true)
+    Long findBalanceAt(@Param("companyId") Long companyId,
+                       @Param("projectId") Long projectId,
+                       @Param("monthStart") LocalDate monthStart,
+                       @Param("date") LocalDate date);
+}
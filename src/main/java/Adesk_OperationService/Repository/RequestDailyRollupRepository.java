@@ -0,0 +1,98 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Model.RequestDailyRollupModel;
+import Adesk_OperationService.Model.RollupTotalsRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// нативные изменения помечены своей таблицей, иначе hibernate сбрасывает весь кэш второго уровня
+public interface RequestDailyRollupRepository extends JpaRepository<RequestDailyRollupModel, Long> {
+
+    // прибавляет приращение к дневному итогу, строка создается при первом изменении
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "request_daily_rollups"))
+    @Query(value = """
+            INSERT INTO request_daily_rollups
+                (company_id, project_id, type_of_operation, approved_status, day, count, total, positive_total)
+            VALUES (:companyId, :projectId, :typeOfOperation, :status, :day, :count, :total, :positiveTotal)
+            ON CONFLICT (company_id, (COALESCE(project_id, 0)), (COALESCE(type_of_operation, '')), approved_status, day)
+            DO UPDATE SET count = request_daily_rollups.count + EXCLUDED.count,
+                          total = request_daily_rollups.total + EXCLUDED.total,
+                          positive_total = request_daily_rollups.positive_total + EXCLUDED.positive_total
+            """, nativeQuery = true)
+    void applyDelta(@Param("companyId") Long companyId,
+                    @Param("projectId") Long projectId,
+                    @Param("typeOfOperation") String typeOfOperation,
+                    @Param("status") String status,
+                    @Param("day") LocalDate day,
+                    @Param("count") long count,
+                    @Param("total") long total,
+                    @Param("positiveTotal") long positiveTotal);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "request_daily_rollups"))
+    @Query(value = "DELETE FROM request_daily_rollups WHERE company_id = :companyId", nativeQuery = true)
+    void deleteByCompany(@Param("companyId") Long companyId);
+
+    // пересчет итогов компании с нуля по горячей таблице и архиву
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "request_daily_rollups"))
+    @Query(value = """
+            INSERT INTO request_daily_rollups
+                (company_id, project_id, type_of_operation, approved_status, day, count, total, positive_total)
+            SELECT r.company_id, r.project_id, r.type_of_operation, r.approved_status,
+                   (r.created_at AT TIME ZONE :zone)::date,
+                   count(*),
+                   COALESCE(sum(r.sum), 0),
+                   COALESCE(sum(r.sum) FILTER (WHERE r.sum > 0), 0)
+            FROM (
+                SELECT company_id, project_id, type_of_operation, approved_status, created_at, sum
+                FROM requests WHERE company_id = :companyId AND approved_status IS NOT NULL AND deleted_at IS NULL
+                UNION ALL
+                SELECT company_id, project_id, type_of_operation, approved_status, created_at, sum
+                FROM requests_archive WHERE company_id = :companyId AND approved_status IS NOT NULL
+            ) r
+            GROUP BY 1, 2, 3, 4, 5
+            """, nativeQuery = true)
+    int rebuildCompany(@Param("companyId") Long companyId, @Param("zone") String zone);
+
+    @Query(value = """
+            SELECT project_id AS projectId, type_of_operation AS typeOfOperation, approved_status AS approvedStatus,
+                   sum(count)::bigint AS count, sum(total)::bigint AS total, sum(positive_total)::bigint AS positiveTotal
+            FROM request_daily_rollups
+            WHERE company_id = :companyId AND day >= :fromDay AND day < :toDay
+            GROUP BY project_id, type_of_operation, approved_status
+            """, nativeQuery = true)
+    List<RollupTotalsRow> findTotalsInPeriod(@Param("companyId") Long companyId,
+                                             @Param("fromDay") LocalDate fromDay,
+                                             @Param("toDay") LocalDate toDay);
+
+    @Query(value = """
+            SELECT project_id AS projectId, NULL AS typeOfOperation, NULL AS approvedStatus,
+                   COALESCE(sum(count), 0)::bigint AS count, COALESCE(sum(total), 0)::bigint AS total,
+                   COALESCE(sum(positive_total), 0)::bigint AS positiveTotal
+            FROM request_daily_rollups
+            WHERE company_id = :companyId AND project_id = :projectId
+            GROUP BY project_id
+            """, nativeQuery = true)
+    List<RollupTotalsRow> findProjectTotals(@Param("companyId") Long companyId, @Param("projectId") Long projectId);
+
+    @Query(value = """
+            SELECT company_id FROM requests WHERE company_id IS NOT NULL AND deleted_at IS NULL
+            UNION
+            SELECT company_id FROM requests_archive WHERE company_id IS NOT NULL
+            """, nativeQuery = true)
+    List<Long> findAllCompanyIds();
+}
@@ -0,0 +1,122 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Constants.RequestFields;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.RequestFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выборка заявок только по запрошенным колонкам. SQL собирается из белого списка RequestFields,
+ * значения фильтров передаются параметрами. Строки возвращаются как Map в порядке полей,
+ * служебные колонки (row_id, archived) в ответ не попадают
+ */
+@Repository
+@RequiredArgsConstructor
+public class RequestFieldsRepository {
+    public static final String ROW_ID = "row_id";
+    public static final String ARCHIVED = "archived";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @param fields выбранные поля
+     * @param filter условия выборки
+     * @param includeArchive читать ли еще и requests_archive
+     * @return строки от новых к старым
+     */
+    public List<Map<String, Object>> find(Set<RequestFields> fields, RequestFilter filter, boolean includeArchive) {
+        boolean withFiles = fields.contains(RequestFields.FILES);
+        StringBuilder sql = new StringBuilder();
+        appendSelect(sql, fields, withFiles, "requests", false, filter);
+        if (includeArchive) {
+            sql.append(" UNION ALL ");
+            appendSelect(sql, fields, withFiles, "requests_archive", true, filter);
+        }
+        sql.append(" ORDER BY sort_key DESC");
+
+        MapSqlParameterSource params = new MapSqlParameterSource("companyId", filter.companyId());
+        if (filter.projectId() != null)
+            params.addValue("projectId", filter.projectId());
+        if (filter.period() != null) {
+            params.addValue("from", filter.period().from().toOffsetDateTime());
+            params.addValue("to", filter.period().to().toOffsetDateTime());
+        }
+        if (filter.quarter() != null) {
+            params.addValue("quarter", filter.quarter());
+            params.addValue("zone", ZoneId.systemDefault().getId());
+        }
+
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> mapRow(rs, fields, withFiles));
+    }
+
+    private void appendSelect(StringBuilder sql, Set<RequestFields> fields, boolean withFiles,
+                              String table, boolean archive, RequestFilter filter) {
+        sql.append("SELECT r.created_at AS sort_key");
+        if (withFiles)
+            sql.append(", r.id AS ").append(ROW_ID).append(", ").append(archive).append(" AS ").append(ARCHIVED);
+        for (RequestFields field : fields) {
+            if (field == RequestFields.FILES)
+                continue;
+            // в архиве нет версии, как и у архивных заявок в полном ответе
+            if (archive && field == RequestFields.VERSION)
+                sql.append(", CAST(NULL AS bigint) AS ").append(field.getColumn());
+            else
+                sql.append(", r.").append(field.getColumn());
+        }
+
+        sql.append(" FROM ").append(table).append(" r WHERE r.company_id = :companyId");
+        if (!archive)
+            sql.append(" AND r.deleted_at IS NULL");
+        if (filter.projectId() != null)
+            sql.append(" AND r.project_id = :projectId");
+        // статус из enum подставляется литералом: так postgres применяет частичный индекс очереди
+        // согласования и в общем плане подготовленного запроса
+        if (filter.status() != null)
+            sql.append(" AND r.approved_status = '").append(filter.status().name()).append("'");
+        if (filter.period() != null)
+            sql.append(" AND r.created_at >= :from AND r.created_at < :to");
+        if (filter.quarter() != null)
+            sql.append(" AND EXTRACT(QUARTER FROM r.created_at AT TIME ZONE :zone) = :quarter");
+    }
+
+    private Map<String, Object> mapRow(ResultSet rs, Set<RequestFields> fields, boolean withFiles) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (RequestFields field : fields) {
+            if (field != RequestFields.FILES)
+                row.put(field.getName(), readValue(rs, field));
+        }
+        if (withFiles) {
+            row.put(ROW_ID, rs.getLong(ROW_ID));
+            row.put(ARCHIVED, rs.getBoolean(ARCHIVED));
+        }
+        return row;
+    }
+
+    private Object readValue(ResultSet rs, RequestFields field) throws SQLException {
+        String column = field.getColumn();
+        return switch (field) {
+            case ID, PROJECT_ID, SUM, COMPANY_ID, VERSION -> rs.getObject(column, Long.class);
+            case CREATED_AT -> {
+                OffsetDateTime createdAt = rs.getObject(column, OffsetDateTime.class);
+                yield createdAt == null ? null : createdAt.atZoneSameInstant(ZoneId.systemDefault());
+            }
+            case APPROVED_STATUS -> {
+                String status = rs.getString(column);
+                yield status == null ? null : RequestStatuses.valueOf(status);
+            }
+            default -> rs.getString(column);
+        };
+    }
+}
@@ -1,9 +1,29 @@
 package Adesk_OperationService.Repository;
 
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ActivityHistogramRow;
+import Adesk_OperationService.Model.ApprovalQueueRow;
+import Adesk_OperationService.Model.CashFlowBucketRow;
+import Adesk_OperationService.Model.CounterpartyUsageRow;
+import Adesk_OperationService.Model.LedgerEntryRow;
 import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Model.StatisticsBlockRow;
+import Adesk_OperationService.Model.StatusTransitionRow;
+import Adesk_OperationService.Model.TopOperationRow;
+import jakarta.persistence.QueryHint;
 import org.apache.coyote.Request;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +33,306 @@ public interface RequestRepository extends JpaRepository<RequestModel, Long> {
 //    List<RequestModel> findByProjectName(String projectName);
     List<RequestModel> findByProjectIdAndCompanyId(Long projectId, Long companyId);
     List<RequestModel> findByCompanyId(Long companyId);
+
+    @Query("select r from RequestModel r where r.companyId = :companyId and r.createdAt >= :from and r.createdAt < :to")
+    List<RequestModel> findByCompanyIdInPeriod(@Param("companyId") Long companyId,
+                                               @Param("from") ZonedDateTime from,
+                                               @Param("to") ZonedDateTime to);
+
+    // очередь согласования без файлов по частичному индексу idx_requests_approving_company_created.
+    // Статус - литерал, а не параметр: по параметру postgres в общем плане подготовленного
+    // запроса не может доказать условие частичного индекса и берет полный
+    @Query("select r.id as id, r.description as description, r.typeOfOperation as typeOfOperation, " +
+            "r.projectId as projectId, r.nameOfCounterparty as nameOfCounterparty, r.sum as sum, " +
+            "r.createdAt as createdAt, r.companyId as companyId, r.creatorLogin as creatorLogin, " +
+            "r.creatorEmail as creatorEmail, r.responsibleManager as responsibleManager, " +
+            "r.approvedStatus as approvedStatus, r.version as version " +
+            "from RequestModel r where r.companyId = :companyId " +
+            "and r.approvedStatus = Adesk_OperationService.Constants.RequestStatuses.APPROVING order by r.createdAt desc")
+    List<ApprovalQueueRow> findApprovalQueueRows(@Param("companyId") Long companyId);
+
+    @Query("select r from RequestModel r where r.approvedStatus = :status and r.createdAt < :before order by r.createdAt")
+    List<RequestModel> findByStatusCreatedBefore(@Param("status") RequestStatuses status,
+                                                 @Param("before") ZonedDateTime before,
+                                                 Limit limit);
+
+    // все блоки статистики за один проход: горячая таблица и архив, GROUPING SETS по каждому признаку
+    @Query(value = """
+            SELECT CASE
+                       WHEN GROUPING(r.type_of_operation) = 0 THEN 'TYPE'
+                       WHEN GROUPING(r.project_id) = 0 THEN 'PROJECT'
+                       WHEN GROUPING(r.name_of_counterparty) = 0 THEN 'COUNTERPARTY'
+                       WHEN GROUPING(r.month) = 0 THEN 'MONTH'
+                       WHEN GROUPING(r.approved_status) = 0 THEN 'STATUS'
+                       ELSE 'TOTAL'
+                   END AS block,
+                   COALESCE(r.type_of_operation, r.project_id::text, r.name_of_counterparty, r.month, r.approved_status) AS key,
+                   count(*) AS count,
+                   COALESCE(sum(r.sum), 0)::bigint AS total,
+                   COALESCE(sum(r.sum) FILTER (WHERE r.sum > 0), 0)::bigint AS income
+            FROM (
+                SELECT type_of_operation, project_id, name_of_counterparty, approved_status, sum,
+                       to_char(created_at AT TIME ZONE :zone, 'YYYY-MM') AS month
+                FROM requests WHERE company_id = :companyId AND deleted_at IS NULL
+                UNION ALL
+                SELECT type_of_operation, project_id, name_of_counterparty, approved_status, sum,
+                       to_char(created_at AT TIME ZONE :zone, 'YYYY-MM') AS month
+                FROM requests_archive WHERE company_id = :companyId
+            ) r
+            GROUP BY GROUPING SETS ((r.type_of_operation), (r.project_id), (r.name_of_counterparty),
+                                    (r.month), (r.approved_status), ())
+            """, nativeQuery = true)
+    List<StatisticsBlockRow> findStatisticsBlocks(@Param("companyId") Long companyId, @Param("zone") String zone);
+
+    // утвержденные операции проекта за период с нарастающим балансом, горячая таблица и архив
+    @Query(value = """
+            SELECT r.id, r.created_at AS createdAt, r.type_of_operation AS typeOfOperation,
+                   r.name_of_counterparty AS nameOfCounterparty, r.description, r.sum,
+                   (:openingBalance + sum(COALESCE(r.sum, 0)) OVER (ORDER BY r.created_at, r.id))::bigint AS balance
+            FROM (
+                SELECT id, created_at, type_of_operation, name_of_counterparty, description, sum
+                FROM requests
+                WHERE company_id = :companyId AND project_id = :projectId AND approved_status = 'APPROVED'
+                  AND created_at >= :from AND created_at < :to AND deleted_at IS NULL
+                UNION ALL
+                SELECT id, created_at, type_of_operation, name_of_counterparty, description, sum
+                FROM requests_archive
+                WHERE company_id = :companyId AND project_id = :projectId AND approved_status = 'APPROVED'
+                  AND created_at >= :from AND created_at < :to
+            ) r
+            ORDER BY r.created_at, r.id
+            """, nativeQuery = true)
+    List<LedgerEntryRow> findProjectLedger(@Param("companyId") Long companyId,
+                                           @Param("projectId") Long projectId,
+                                           @Param("from") ZonedDateTime from,
+                                           @Param("to") ZonedDateTime to,
+                                           @Param("openingBalance") long openingBalance);
+
+    // денежный поток по утвержденным операциям: корзины строятся generate_series,
+    // поэтому пустые дни, недели и месяцы тоже попадают в ответ с нулями
+    @Query(value = """
+            WITH buckets AS (
+                SELECT generate_series(date_trunc(:unit, CAST(:fromDay AS timestamp)),
+                                       CAST(:toDay AS timestamp),
+                                       CAST('1 ' || :unit AS interval)) AS bucket
+            ), ops AS (
+                SELECT date_trunc(:unit, created_at AT TIME ZONE :zone) AS bucket, sum
+                FROM requests
+                WHERE company_id = :companyId AND approved_status = 'APPROVED'
+                  AND created_at >= :from AND created_at < :to AND deleted_at IS NULL
+                  AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                UNION ALL
+                SELECT date_trunc(:unit, created_at AT TIME ZONE :zone) AS bucket, sum
+                FROM requests_archive
+                WHERE company_id = :companyId AND approved_status = 'APPROVED'
+                  AND created_at >= :from AND created_at < :to
+                  AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+            ), totals AS (
+                SELECT bucket,
+                       count(*) AS count,
+                       COALESCE(sum(sum) FILTER (WHERE sum > 0), 0) AS income,
+                       COALESCE(sum(sum) FILTER (WHERE sum < 0), 0) AS outflow
+                FROM ops
+                GROUP BY bucket
+            )
+            SELECT to_char(b.bucket, 'YYYY-MM-DD') AS bucketStart,
+                   COALESCE(t.income, 0)::bigint AS income,
+                   COALESCE(t.outflow, 0)::bigint AS outflow,
+                   (COALESCE(t.income, 0) + COALESCE(t.outflow, 0))::bigint AS net,
+                   COALESCE(t.count, 0) AS count
+            FROM buckets b
+            LEFT JOIN totals t ON t.bucket = b.bucket
+            ORDER BY b.bucket
+            """, nativeQuery = true)
+    List<CashFlowBucketRow> findCashFlow(@Param("companyId") Long companyId,
+                                         @Param("projectId") Long projectId,
+                                         @Param("unit") String unit,
+                                         @Param("zone") String zone,
+                                         @Param("fromDay") LocalDate fromDay,
+                                         @Param("toDay") LocalDate toDay,
+                                         @Param("from") ZonedDateTime from,
+                                         @Param("to") ZonedDateTime to);
+
+    // переход статуса одним запросом: строка меняется, только если статус (и версия, если передана)
+    // совпадает с ожидаемым. Заблокированная параллельным переходом строка пропускается, а не ожидается.
+    // Возвращается статус до перехода
+    @Transactional
+    @Query(value = """
+            WITH target AS (
+                SELECT id, created_at, approved_status FROM requests
+                WHERE id = :id AND approved_status IN (:fromStatuses) AND deleted_at IS NULL
+                  AND (CAST(:version AS bigint) IS NULL OR version = :version)
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE requests r SET approved_status = :toStatus, version = r.version + 1
+            FROM target t
+            WHERE r.id = t.id AND r.created_at = t.created_at
+            RETURNING r.id, r.description, r.type_of_operation AS typeOfOperation, r.project_id AS projectId,
+                      r.name_of_counterparty AS nameOfCounterparty, r.sum, r.created_at AS createdAt,
+                      r.company_id AS companyId, r.creator_login AS creatorLogin, r.creator_email AS creatorEmail,
+                      r.responsible_manager AS responsibleManager, t.approved_status AS approvedStatus, r.version
+            """, nativeQuery = true)
+    Optional<StatusTransitionRow> compareAndSetStatus(@Param("id") Long id,
+                                                      @Param("fromStatuses") List<String> fromStatuses,
+                                                      @Param("toStatus") String toStatus,
+                                                      @Param("version") Long version);
+
+    // отклонение тем же условным запросом помечает заявку удаленной, строку и файлы
+    // потом физически удаляет RequestPurgeService. Возвращается статус до отклонения
+    @Transactional
+    @Query(value = """
+            WITH target AS (
+                SELECT id, created_at, approved_status FROM requests
+                WHERE id = :id AND approved_status IN (:fromStatuses) AND deleted_at IS NULL
+                  AND (CAST(:version AS bigint) IS NULL OR version = :version)
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE requests r SET approved_status = 'DISAPPROVED', deleted_at = now(), version = r.version + 1
+            FROM target t
+            WHERE r.id = t.id AND r.created_at = t.created_at
+            RETURNING r.id, r.description, r.type_of_operation AS typeOfOperation, r.project_id AS projectId,
+                      r.name_of_counterparty AS nameOfCounterparty, r.sum, r.created_at AS createdAt,
+                      r.company_id AS companyId, r.creator_login AS creatorLogin, r.creator_email AS creatorEmail,
+                      r.responsible_manager AS responsibleManager, t.approved_status AS approvedStatus, r.version
+            """, nativeQuery = true)
+    Optional<StatusTransitionRow> compareAndDelete(@Param("id") Long id,
+                                                   @Param("fromStatuses") List<String> fromStatuses,
+                                                   @Param("version") Long version);
+
+    // логическое удаление: строка сразу скрыта от чтения, физически ее удаляет RequestPurgeService.
+    // Статус и владелец проверяются в том же запросе, поэтому возвращаются только строки, которые
+    // удалил именно он, со статусом на момент удаления (само удаление статус не меняет)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "requests"))
+    @Query(value = """
+            UPDATE requests SET deleted_at = now(), version = version + 1
+            WHERE id IN (:ids) AND company_id = :companyId AND deleted_at IS NULL
+              AND approved_status IN (:fromStatuses)
+              AND (CAST(:creatorEmail AS varchar) IS NULL OR creator_email = :creatorEmail)
+              AND (CAST(:responsibleManager AS varchar) IS NULL OR responsible_manager = :responsibleManager)
+            RETURNING id, description, type_of_operation AS typeOfOperation, project_id AS projectId,
+                      name_of_counterparty AS nameOfCounterparty, sum, created_at AS createdAt,
+                      company_id AS companyId, creator_login AS creatorLogin, creator_email AS creatorEmail,
+                      responsible_manager AS responsibleManager, approved_status AS approvedStatus, version
+            """, nativeQuery = true)
+    List<StatusTransitionRow> markDeleted(@Param("ids") Collection<Long> ids,
+                                          @Param("companyId") Long companyId,
+                                          @Param("fromStatuses") List<String> fromStatuses,
+                                          @Param("creatorEmail") String creatorEmail,
+                                          @Param("responsibleManager") String responsibleManager);
+
+    // контрагенты компании с частотой и последним использованием, горячая таблица и архив
+    @Query(value = """
+            SELECT r.name_of_counterparty AS name,
+                   count(*) AS frequency,
+                   extract(epoch FROM max(r.created_at))::bigint AS lastUsedEpoch
+            FROM (
+                SELECT name_of_counterparty, created_at FROM requests
+                WHERE company_id = :companyId AND name_of_counterparty IS NOT NULL AND deleted_at IS NULL
+                UNION ALL
+                SELECT name_of_counterparty, created_at FROM requests_archive
+                WHERE company_id = :companyId AND name_of_counterparty IS NOT NULL
+            ) r
+            GROUP BY r.name_of_counterparty
+            """, nativeQuery = true)
+    List<CounterpartyUsageRow> findCounterpartyUsage(@Param("companyId") Long companyId);
+
+    // N крупнейших утвержденных операций за период, direction: outflow - самые большие выплаты,
+    // income - поступления, any - по модулю. Каждая ветка идет по частичному индексу суммы (V13)
+    // в порядке суммы и останавливается на N-й строке периода. Условие на :direction и
+    // :includeArchive не зависит от строк, поэтому ветки других направлений и архива не выполняются
+    @Query(value = """
+            SELECT * FROM (
+                (SELECT id, created_at AS createdAt, type_of_operation AS typeOfOperation, project_id AS projectId,
+                        name_of_counterparty AS nameOfCounterparty, description, sum
+                 FROM requests
+                 WHERE :direction = 'any' AND company_id = :companyId AND approved_status = 'APPROVED'
+                   AND deleted_at IS NULL AND sum IS NOT NULL
+                   AND created_at >= :from AND created_at < :to
+                   AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                   AND (CAST(:typeOfOperation AS varchar) IS NULL OR type_of_operation = :typeOfOperation)
+                 ORDER BY abs(sum) DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT id, created_at, type_of_operation, project_id, name_of_counterparty, description, sum
+                 FROM requests_archive
+                 WHERE :includeArchive AND :direction = 'any' AND company_id = :companyId
+                   AND approved_status = 'APPROVED' AND sum IS NOT NULL
+                   AND created_at >= :from AND created_at < :to
+                   AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                   AND (CAST(:typeOfOperation AS varchar) IS NULL OR type_of_operation = :typeOfOperation)
+                 ORDER BY abs(sum) DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT id, created_at, type_of_operation, project_id, name_of_counterparty, description, sum
+                 FROM requests
+                 WHERE :direction = 'outflow' AND company_id = :companyId AND approved_status = 'APPROVED'
+                   AND deleted_at IS NULL AND sum IS NOT NULL AND sum < 0
+                   AND created_at >= :from AND created_at < :to
+                   AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                   AND (CAST(:typeOfOperation AS varchar) IS NULL OR type_of_operation = :typeOfOperation)
+                 ORDER BY sum
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT id, created_at, type_of_operation, project_id, name_of_counterparty, description, sum
+                 FROM requests_archive
+                 WHERE :includeArchive AND :direction = 'outflow' AND company_id = :companyId
+                   AND approved_status = 'APPROVED' AND sum IS NOT NULL AND sum < 0
+                   AND created_at >= :from AND created_at < :to
+                   AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                   AND (CAST(:typeOfOperation AS varchar) IS NULL OR type_of_operation = :typeOfOperation)
+                 ORDER BY sum
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT id, created_at, type_of_operation, project_id, name_of_counterparty, description, sum
+                 FROM requests
+                 WHERE :direction = 'income' AND company_id = :companyId AND approved_status = 'APPROVED'
+                   AND deleted_at IS NULL AND sum IS NOT NULL AND sum > 0
+                   AND created_at >= :from AND created_at < :to
+                   AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                   AND (CAST(:typeOfOperation AS varchar) IS NULL OR type_of_operation = :typeOfOperation)
+                 ORDER BY sum DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT id, created_at, type_of_operation, project_id, name_of_counterparty, description, sum
+                 FROM requests_archive
+                 WHERE :includeArchive AND :direction = 'income' AND company_id = :companyId
+                   AND approved_status = 'APPROVED' AND sum IS NOT NULL AND sum > 0
+                   AND created_at >= :from AND created_at < :to
+                   AND (CAST(:projectId AS bigint) IS NULL OR project_id = :projectId)
+                   AND (CAST(:typeOfOperation AS varchar) IS NULL OR type_of_operation = :typeOfOperation)
+                 ORDER BY sum DESC
+                 LIMIT :limit)
+            ) r
+            ORDER BY abs(r.sum) DESC, r.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TopOperationRow> findTopOperations(@Param("companyId") Long companyId,
+                                            @Param("from") ZonedDateTime from,
+                                            @Param("to") ZonedDateTime to,
+                                            @Param("projectId") Long projectId,
+                                            @Param("typeOfOperation") String typeOfOperation,
+                                            @Param("direction") String direction,
+                                            @Param("includeArchive") boolean includeArchive,
+                                            @Param("limit") int limit);
+
+    // активность за период одним проходом: группировка по дню недели и часу в зоне zone
+    @Query(value = """
+            SELECT date_part('isodow', r.local_time)::int AS weekday,
+                   date_part('hour', r.local_time)::int AS hour,
+                   count(*) AS count,
+                   COALESCE(sum(r.sum), 0)::bigint AS total
+            FROM (
+                SELECT created_at AT TIME ZONE :zone AS local_time, sum FROM requests
+                WHERE company_id = :companyId AND created_at >= :from AND created_at < :to AND deleted_at IS NULL
+                UNION ALL
+                SELECT created_at AT TIME ZONE :zone AS local_time, sum FROM requests_archive
+                WHERE company_id = :companyId AND created_at >= :from AND created_at < :to
+            ) r
+            GROUP BY 1, 2
+            """, nativeQuery = true)
+    List<ActivityHistogramRow> findActivityHistogram(@Param("companyId") Long companyId,
+                                                     @Param("zone") String zone,
+                                                     @Param("from") ZonedDateTime from,
+                                                     @Param("to") ZonedDateTime to);
 }
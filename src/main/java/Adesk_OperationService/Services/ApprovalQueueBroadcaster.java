@@ -0,0 +1,141 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.ApprovalQueueDeltaDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рассылает изменения очереди согласования подписчикам SSE внутри одного экземпляра сервиса.
+ * У каждого подписчика своя ограниченная очередь и свой виртуальный поток, который ее разбирает:
+ * простаивающее соединение стоит только заблокированный виртуальный поток.
+ * Если очередь подписчика переполнена, он слишком медленный и отключается - клиент
+ * переподключается и догоняет пропущенное через get-operation-events
+ */
+@Service
+public class ApprovalQueueBroadcaster {
+    private final Logger log = LoggerFactory.getLogger(ApprovalQueueBroadcaster.class);
+    private static final Object HEARTBEAT = new Object();
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    public ApprovalQueueBroadcaster(@Value("${app.sse.buffer-size:256}") int bufferSize,
+                                    @Value("${app.sse.timeout-ms:1800000}") long timeoutMillis) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Регистрирует нового подписчика компании
+     *
+     * @param companyId id компании
+     * @return emitter, который нужно вернуть из контроллера
+     */
+    public SseEmitter subscribe(Long companyId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(companyId, emitter, new ArrayBlockingQueue<>(bufferSize));
+
+        subscribers.compute(companyId, (id, set) -> {
+            if (set == null)
+                set = ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(ex -> remove(subscriber));
+
+        subscriber.drainer = Thread.ofVirtual()
+                .name("sse-company-" + companyId)
+                .start(() -> drain(subscriber));
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        var companySubscribers = subscribers.get(event.companyId());
+        if (companySubscribers == null || companySubscribers.isEmpty())
+            return;
+
+        ApprovalQueueDeltaDTO delta = ApprovalQueueDeltaDTO.from(event);
+        for (Subscriber subscriber : companySubscribers)
+            offer(subscriber, delta);
+    }
+
+    // держит соединения живыми за прокси и заодно выявляет отвалившихся клиентов
+    @Scheduled(fixedDelayString = "${app.sse.heartbeat-interval-ms:25000}")
+    public void sendHeartbeats() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> offer(subscriber, HEARTBEAT)));
+    }
+
+    public int getSubscribersCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void offer(Subscriber subscriber, Object message) {
+        if (!subscriber.queue.offer(message)) {
+            log.warn("Evicting slow SSE subscriber of company {}", subscriber.companyId);
+            subscriber.emitter.complete();
+            remove(subscriber);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Object message = subscriber.queue.take();
+                if (message == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    ApprovalQueueDeltaDTO delta = (ApprovalQueueDeltaDTO) message;
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(delta.getSequence()))
+                            .name(delta.getType().name())
+                            .data(delta));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException ex) {
+            // клиент отключился
+            remove(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.companyId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        Thread drainer = subscriber.drainer;
+        if (drainer != null && drainer != Thread.currentThread())
+            drainer.interrupt();
+    }
+
+    private static final class Subscriber {
+        private final Long companyId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue;
+        private volatile Thread drainer;
+
+        private Subscriber(Long companyId, SseEmitter emitter, BlockingQueue<Object> queue) {
+            this.companyId = companyId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ArchivedFileModel;
+import Adesk_OperationService.Model.ArchivedRequestModel;
+import Adesk_OperationService.Model.FileModel;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Repository.ArchivedFileRepository;
+import Adesk_OperationService.Repository.ArchivedRequestRepository;
+import Adesk_OperationService.Repository.FilePreviewRepository;
+import Adesk_OperationService.Repository.RequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Переносит утвержденные операции старше app.archive.min-age-days вместе с файлами
+ * из requests/files в requests_archive/files_archive. Содержимое файлов сжимается gzip
+ */
+@Service
+public class ArchiveService {
+    private final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+
+    private final RequestRepository requestRepository;
+    private final ArchivedRequestRepository archivedRequestRepository;
+    private final ArchivedFileRepository archivedFileRepository;
+    private final FilePreviewRepository filePreviewRepository;
+    private final FileBlobService fileBlobService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int minAgeDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public ArchiveService(RequestRepository requestRepository,
+                          ArchivedRequestRepository archivedRequestRepository,
+                          ArchivedFileRepository archivedFileRepository,
+                          FilePreviewRepository filePreviewRepository,
+                          FileBlobService fileBlobService,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${app.archive.enabled:true}") boolean enabled,
+                          @Value("${app.archive.min-age-days:730}") int minAgeDays,
+                          @Value("${app.archive.batch-size:50}") int batchSize,
+                          @Value("${app.archive.max-batches-per-run:200}") int maxBatchesPerRun) {
+        this.requestRepository = requestRepository;
+        this.archivedRequestRepository = archivedRequestRepository;
+        this.archivedFileRepository = archivedFileRepository;
+        this.filePreviewRepository = filePreviewRepository;
+        this.fileBlobService = fileBlobService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.minAgeDays = minAgeDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * Граница архива: все, что в архиве, создано раньше этого момента
+     *
+     * @return текущая граница архива
+     */
+    public ZonedDateTime getArchiveHorizon() {
+        return ZonedDateTime.now().minusDays(minAgeDays);
+    }
+
+    /**
+     * Нужно ли заглядывать в архив для периода, начинающегося с from
+     *
+     * @param from начало периода
+     * @return true, если период заходит за границу архива
+     */
+    public boolean reachesArchive(ZonedDateTime from) {
+        return from.isBefore(getArchiveHorizon());
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void archiveOldOperations() {
+        if (!enabled)
+            return;
+
+        int archived = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(getArchiveHorizon()));
+            if (moved == null || moved == 0)
+                break;
+            archived += moved;
+        }
+        if (archived > 0)
+            log.info("Archived {} approved operations", archived);
+    }
+
+    // одна пачка - одна транзакция, чтобы не держать длинных блокировок
+    private int archiveBatch(ZonedDateTime horizon) {
+        var batch = requestRepository.findByStatusCreatedBefore(RequestStatuses.APPROVED, horizon, Limit.of(batchSize));
+        if (batch.isEmpty())
+            return 0;
+
+        ZonedDateTime now = ZonedDateTime.now();
+        List<ArchivedRequestModel> archivedRequests = new ArrayList<>();
+        List<ArchivedFileModel> archivedFiles = new ArrayList<>();
+        List<String> releasedBlobs = new ArrayList<>();
+        List<Long> fileIds = new ArrayList<>();
+        for (RequestModel request : batch) {
+            archivedRequests.add(toArchived(request, now));
+            for (FileModel file : request.getFiles()) {
+                archivedFiles.add(toArchived(file, request.getId()));
+                releasedBlobs.add(file.getContentSha256());
+                fileIds.add(file.getId());
+            }
+        }
+
+        archivedRequestRepository.saveAll(archivedRequests);
+        archivedRequestRepository.flush(); //files_archive ссылается на requests_archive
+        archivedFileRepository.saveAll(archivedFiles);
+        requestRepository.deleteAll(batch); //файлы удаляются каскадом
+        fileBlobService.release(releasedBlobs); //в архиве у каждого файла своя сжатая копия
+        if (!fileIds.isEmpty())
+            filePreviewRepository.deleteByFileIdIn(fileIds); //превью архивных файлов не отдаются
+        return batch.size();
+    }
+
+    /**
+     * Достает файл из архива с распакованным содержимым
+     *
+     * @param fileId id файла
+     * @return файл в виде FileModel (не сохраняется в БД) или пустой Optional
+     */
+    public Optional<FileModel> findArchivedFile(Long fileId) {
+        return archivedFileRepository.findById(fileId)
+                .map(file -> FileModel.builder()
+                        .id(file.getId())
+                        .originalFilename(file.getOriginalFilename())
+                        .storedFilename(file.getStoredFilename())
+                        .fileSize(file.getFileSize())
+                        .content(gunzip(file.getContent()))
+                        .userEmail(file.getUserEmail())
+                        .companyId(file.getCompanyId())
+                        .uploadedAt(file.getUploadedAt())
+                        .href(file.getHref())
+                        .isCompressed(false)
+                        .build());
+    }
+
+    private ArchivedRequestModel toArchived(RequestModel request, ZonedDateTime archivedAt) {
+        var archived = new ArchivedRequestModel();
+        archived.setId(request.getId());
+        archived.setDescription(request.getDescription());
+        archived.setTypeOfOperation(request.getTypeOfOperation());
+        archived.setProjectId(request.getProjectId());
+        archived.setNameOfCounterparty(request.getNameOfCounterparty());
+        archived.setSum(request.getSum());
+        archived.setCreatedAt(request.getCreatedAt());
+        archived.setCompanyId(request.getCompanyId());
+        archived.setCreatorLogin(request.getCreatorLogin());
+        archived.setCreatorEmail(request.getCreatorEmail());
+        archived.setResponsibleManager(request.getResponsibleManager());
+        archived.setApprovedStatus(request.getApprovedStatus());
+        archived.setArchivedAt(archivedAt);
+        return archived;
+    }
+
+    private ArchivedFileModel toArchived(FileModel file, Long requestId) {
+        var archived = new ArchivedFileModel();
+        archived.setId(file.getId());
+        archived.setOriginalFilename(file.getOriginalFilename());
+        archived.setStoredFilename(file.getStoredFilename());
+        archived.setFileSize(file.getFileSize());
+        archived.setContent(gzip(file.getContent()));
+        archived.setUserEmail(file.getUserEmail());
+        archived.setCompanyId(file.getCompanyId());
+        archived.setRequestId(requestId);
+        archived.setUploadedAt(file.getUploadedAt());
+        archived.setHref(file.getHref());
+        return archived;
+    }
+
+    private static byte[] gzip(byte[] content) {
+        if (content == null)
+            return null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) {
+        if (compressed == null)
+            return null;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.AuditLogModel;
+import Adesk_OperationService.Repository.AuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал действий с заявками. Поток запроса после коммита только кладет запись
+ * в ограниченную очередь, фоновый поток пишет накопленное одним многострочным INSERT
+ * не реже чем раз в app.audit.flush-interval-ms. Если очередь переполнена, запись
+ * отбрасывается (счетчик audit.dropped): запрос пользователя журнал не тормозит.
+ * При остановке приложения очередь дописывается до конца
+ */
+@Service
+public class AuditLogService {
+    private final Logger log = LoggerFactory.getLogger(AuditLogService.class);
+    private static final String INSERT_PREFIX = "INSERT INTO request_audit_log " +
+            "(company_id, request_id, action, actor_email, previous_status, status, sum, occurred_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditLogRepository auditLogRepository;
+    private final BlockingQueue<AuditEntry> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AuditLogService(JdbcTemplate jdbcTemplate,
+                           AuditLogRepository auditLogRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+                           @Value("${app.audit.batch-size:500}") int batchSize,
+                           @Value("${app.audit.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditLogRepository = auditLogRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.droppedCounter = meterRegistry.counter("audit.dropped");
+        this.writtenCounter = meterRegistry.counter("audit.written");
+        Gauge.builder("audit.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.writer = Thread.ofPlatform().name("audit-writer").daemon(false).start(this::writeLoop);
+    }
+
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        if (event.companyId() == null)
+            return;
+        var entry = new AuditEntry(event.companyId(), event.requestId(), event.type().name(), event.actorEmail(),
+                event.previousStatus() == null ? null : event.previousStatus().name(),
+                event.status() == null ? null : event.status().name(),
+                event.sum(), new Timestamp(System.currentTimeMillis()));
+        if (!queue.offer(entry))
+            droppedCounter.increment();
+    }
+
+    /**
+     * Последние записи журнала компании или одной заявки
+     *
+     * @param companyId id компании
+     * @param requestId id заявки (null - все заявки компании)
+     * @param limit сколько записей вернуть
+     * @return записи от новых к старым
+     */
+    public List<AuditLogModel> find(Long companyId, Long requestId, int limit) {
+        if (requestId == null)
+            return auditLogRepository.findByCompanyIdOrderByOccurredAtDesc(companyId, Limit.of(limit));
+        return auditLogRepository.findByCompanyIdAndRequestIdOrderByOccurredAtDesc(companyId, requestId, Limit.of(limit));
+    }
+
+    private void writeLoop() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                AuditEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+
+                // копим пачку, пока она не заполнится или не выйдет интервал сброса
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long waitNanos = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || waitNanos <= 0)
+                        break;
+                    AuditEntry next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            // остановка: дописываем то, что уже набрали, остальное - в drainRemaining
+        }
+        write(batch);
+        drainRemaining();
+    }
+
+    private void drainRemaining() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<AuditEntry> batch) {
+        if (batch.isEmpty())
+            return;
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW_PLACEHOLDERS.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * COLUMNS];
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0)
+                sql.append(", ");
+            sql.append(ROW_PLACEHOLDERS);
+
+            AuditEntry entry = batch.get(i);
+            int offset = i * COLUMNS;
+            args[offset] = entry.companyId();
+            args[offset + 1] = entry.requestId();
+            args[offset + 2] = entry.action();
+            args[offset + 3] = entry.actorEmail();
+            args[offset + 4] = entry.previousStatus();
+            args[offset + 5] = entry.status();
+            args[offset + 6] = entry.sum();
+            args[offset + 7] = entry.occurredAt();
+        }
+
+        try {
+            jdbcTemplate.update(sql.toString(), args);
+            writtenCounter.increment(batch.size());
+        } catch (Exception ex) {
+            droppedCounter.increment(batch.size());
+            log.error("Failed to write {} audit entries: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private record AuditEntry(Long companyId, Long requestId, String action, String actorEmail,
+                              String previousStatus, String status, Long sum, Timestamp occurredAt) {
+    }
+}
@@ -0,0 +1,188 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Events.CompanyCachesInvalidatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шина сброса кэшей между экземплярами сервиса на LISTEN/NOTIFY postgres.
+ * Уведомление "узел:компания:заявка" отправляется в транзакции изменения заявки,
+ * поэтому postgres доставляет его только после коммита и сам схлопывает одинаковые
+ * уведомления одной транзакции. Каждый узел слушает канал отдельным соединением вне пула,
+ * копит уведомления app.cache-invalidation.coalesce-ms и публикует по одному
+ * CompanyCachesInvalidatedEvent на компанию. Свои уведомления узел пропускает: локальные
+ * кэши уже сброшены слушателями OperationLifecycleEvent. После переподключения
+ * уведомления за время обрыва потеряны, поэтому сбрасываются кэши всех компаний
+ */
+@Service
+public class CacheInvalidationBus {
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    // больше заявок одной компании в окне - сбрасываются все заявки компании
+    private static final int MAX_REQUEST_IDS_PER_COMPANY = 256;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+    private final boolean enabled;
+    private final long coalesceMillis;
+    private final long reconnectDelayMillis;
+    private final Counter receivedCounter;
+    private final Counter publishedEventsCounter;
+    private final Counter resyncCounter;
+    private final Thread listener;
+    private volatile boolean running = true;
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${spring.datasource.url}") String url,
+                                @Value("${spring.datasource.username}") String username,
+                                @Value("${spring.datasource.password}") String password,
+                                @Value("${app.cache-invalidation.channel:company_cache_invalidation}") String channel,
+                                @Value("${app.cache-invalidation.enabled:true}") boolean enabled,
+                                @Value("${app.cache-invalidation.coalesce-ms:200}") long coalesceMillis,
+                                @Value("${app.cache-invalidation.reconnect-delay-ms:5000}") long reconnectDelayMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+        this.enabled = enabled;
+        this.coalesceMillis = coalesceMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.receivedCounter = meterRegistry.counter("cache.invalidation.received");
+        this.publishedEventsCounter = meterRegistry.counter("cache.invalidation.events");
+        this.resyncCounter = meterRegistry.counter("cache.invalidation.resyncs");
+
+        this.listener = enabled
+                ? Thread.ofPlatform().name("cache-invalidation-listener").daemon(true).start(this::listenLoop)
+                : null;
+    }
+
+    /**
+     * Отправляет уведомление об изменении заявки другим узлам, уйдет только при коммите текущей транзакции
+     *
+     * @param companyId id компании
+     * @param requestId id заявки
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(Long companyId, Long requestId) {
+        if (!enabled || companyId == null)
+            return;
+        String payload = nodeId + ":" + companyId + ":" + (requestId == null ? "" : requestId);
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, payload);
+    }
+
+    private void listenLoop() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (connectedBefore) {
+                    log.warn("Cache invalidation listener reconnected, resetting caches of all companies");
+                    resyncCounter.increment();
+                    eventPublisher.publishEvent(new CompanyCachesInvalidatedEvent(null, null));
+                }
+                connectedBefore = true;
+                receive(connection.unwrap(PGConnection.class));
+            } catch (SQLException ex) {
+                if (!running)
+                    return;
+                log.warn("Cache invalidation listener lost connection: {}", ex.getMessage());
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(reconnectDelayMillis);
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    private void receive(PGConnection connection) throws SQLException {
+        // companyId -> id заявок, null - все заявки компании
+        Map<Long, Set<Long>> pending = new HashMap<>();
+        long windowEnd = 0;
+        while (running) {
+            long waitMillis = pending.isEmpty()
+                    ? coalesceMillis * 5
+                    : Math.max(1, TimeUnit.NANOSECONDS.toMillis(windowEnd - System.nanoTime()));
+            // getNotifications с таймаутом заодно проверяет, что соединение живо
+            PGNotification[] notifications = connection.getNotifications((int) Math.min(waitMillis, Integer.MAX_VALUE));
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    if (pending.isEmpty())
+                        windowEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+                    accept(notification.getParameter(), pending);
+                }
+            }
+            if (!pending.isEmpty() && System.nanoTime() - windowEnd >= 0) {
+                pending.forEach((companyId, requestIds) ->
+                        eventPublisher.publishEvent(new CompanyCachesInvalidatedEvent(companyId, requestIds)));
+                publishedEventsCounter.increment(pending.size());
+                pending = new HashMap<>();
+            }
+        }
+    }
+
+    private void accept(String payload, Map<Long, Set<Long>> pending) {
+        String[] parts = payload.split(":", -1);
+        if (parts.length != 3 || parts[0].equals(nodeId))
+            return;
+        receivedCounter.increment();
+        try {
+            Long companyId = Long.parseLong(parts[1]);
+            if (parts[2].isEmpty()) {
+                pending.put(companyId, null);
+                return;
+            }
+            Long requestId = Long.parseLong(parts[2]);
+            if (pending.containsKey(companyId) && pending.get(companyId) == null)
+                return;
+            Set<Long> requestIds = pending.computeIfAbsent(companyId, x -> new HashSet<>());
+            requestIds.add(requestId);
+            if (requestIds.size() > MAX_REQUEST_IDS_PER_COMPANY)
+                pending.put(companyId, null);
+        } catch (NumberFormatException ex) {
+            log.warn("Malformed cache invalidation payload: {}", payload);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.ColumnarStatisticDTO;
+import Adesk_OperationService.Model.OperationEventModel;
+import Adesk_OperationService.Model.Period;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Колоночные снимки заявок крупных компаний для аналитики в памяти (app.columnar.enabled).
+ * Снимок строится одним потоковым чтением requests и requests_archive в транзакции REPEATABLE READ
+ * вместе с номером последнего события outbox компании. Дальше он догоняется по outbox перед каждым
+ * чтением, так что изменения с других экземпляров сервиса тоже учитываются, а события своего
+ * экземпляра применяются сразу после коммита. Все снимки вместе ограничены app.columnar.cache-max-bytes.
+ * Если задан app.columnar.checkpoint.dir, снимки периодически и при остановке сохраняются в локальные файлы,
+ * а при старте читаются обратно и догоняют outbox только после сохраненного номера события
+ */
+@Service
+public class ColumnarSnapshotService {
+    private final Logger log = LoggerFactory.getLogger(ColumnarSnapshotService.class);
+    private static final String SELECT_SEQUENCE = """
+            SELECT COALESCE((SELECT last_sequence FROM company_event_sequences WHERE company_id = ?), 0)
+            """;
+    private static final String SELECT_ROWS = """
+            SELECT id, created_at, sum, project_id, approved_status, type_of_operation, name_of_counterparty
+            FROM requests WHERE company_id = ? AND deleted_at IS NULL
+            UNION ALL
+            SELECT id, created_at, sum, project_id, approved_status, type_of_operation, name_of_counterparty
+            FROM requests_archive WHERE company_id = ?
+            ORDER BY id
+            """;
+
+    private final OperationEventService operationEventService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final Cache<Long, CompanyColumnarSnapshot> snapshots;
+    private final ForkJoinPool pool;
+    private final Timer buildTimer;
+    private final boolean enabled;
+    private final Set<Long> companyIds;
+    private final int fetchSize;
+    private final int replayBatchSize;
+    private final ColumnarSnapshotStore store;
+    private final Map<Long, Long> checkpointedSequences = new ConcurrentHashMap<>();
+
+    public ColumnarSnapshotService(OperationEventService operationEventService,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.columnar.enabled:false}") boolean enabled,
+                                   @Value("${app.columnar.company-ids:}") String companyIds,
+                                   @Value("${app.columnar.cache-max-bytes:268435456}") long maxBytes,
+                                   @Value("${app.columnar.expire-after-access-minutes:120}") long expireAfterAccessMinutes,
+                                   @Value("${app.columnar.parallelism:0}") int parallelism,
+                                   @Value("${app.columnar.fetch-size:5000}") int fetchSize,
+                                   @Value("${app.columnar.replay-batch-size:1000}") int replayBatchSize,
+                                   @Value("${app.columnar.checkpoint.dir:}") String checkpointDir) {
+        this.operationEventService = operationEventService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.companyIds = Arrays.stream(companyIds.split(","))
+                .map(String::trim)
+                .filter(x -> !x.isEmpty())
+                .map(Long::parseLong)
+                .collect(Collectors.toUnmodifiableSet());
+        this.fetchSize = fetchSize;
+        this.replayBatchSize = replayBatchSize;
+        this.store = enabled && !checkpointDir.isBlank() ? new ColumnarSnapshotStore(Path.of(checkpointDir)) : null;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long companyId, CompanyColumnarSnapshot snapshot) ->
+                        (int) Math.min(Integer.MAX_VALUE, snapshot.estimatedBytes()))
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .build();
+        this.buildTimer = Timer.builder("columnar.snapshot.build").register(meterRegistry);
+        meterRegistry.gauge("columnar.snapshot.companies", snapshots, x -> x.estimatedSize());
+    }
+
+    /**
+     * Доступна ли колоночная аналитика для компании
+     *
+     * @param companyId id компании
+     * @return true, если снимки включены и компания в списке app.columnar.company-ids (пустой список - все)
+     */
+    public boolean isEnabledFor(Long companyId) {
+        return enabled && (companyIds.isEmpty() || companyIds.contains(companyId));
+    }
+
+    /**
+     * Итоги компании за период по снимку в памяти
+     *
+     * @param companyId id компании
+     * @param period полуинтервал по created_at
+     * @param projectId проект (null - все проекты)
+     * @param status статус (null - все статусы). Отклонение удаляет заявку, поэтому DISAPPROVED не принимается
+     * @return итоги в разрезе проекта, типа операции, контрагента и статуса
+     */
+    public ColumnarStatisticDTO aggregate(Long companyId, Period period, Long projectId, RequestStatuses status) {
+        if (status == RequestStatuses.DISAPPROVED)
+            throw new IllegalArgumentException("disapproved requests are deleted and not kept in columnar snapshots");
+        CompanyColumnarSnapshot snapshot = getSnapshot(companyId);
+        ColumnarStatisticDTO result = snapshot.aggregate(period.from().toInstant().toEpochMilli(),
+                period.to().toInstant().toEpochMilli(), projectId, status, pool);
+        result.from = period.from();
+        result.to = period.to();
+        return result;
+    }
+
+    /**
+     * Снимок компании, догнанный до последнего события outbox
+     *
+     * @param companyId id компании
+     * @return снимок
+     */
+    public CompanyColumnarSnapshot getSnapshot(Long companyId) {
+        if (!isEnabledFor(companyId))
+            throw new IllegalStateException("columnar snapshot is disabled for company " + companyId);
+        CompanyColumnarSnapshot snapshot = snapshots.get(companyId, this::build);
+        long sequence = snapshot.getSequence();
+        catchUp(snapshot);
+        // вставки могли вырастить массивы, повторная запись в кэш пересчитывает вес снимка
+        if (snapshot.getSequence() != sequence)
+            snapshots.asMap().computeIfPresent(companyId, (id, current) -> current);
+        return snapshot;
+    }
+
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        // пропуск номера (событие с другого экземпляра) - снимок догонит outbox при чтении.
+        // Повторная вставка пересчитывает вес снимка
+        snapshots.asMap().computeIfPresent(event.companyId(), (companyId, snapshot) -> {
+            snapshot.apply(event.sequence(), event.type(), event.requestId(), event.projectId(), event.typeOfOperation(),
+                    event.nameOfCounterparty(), event.sum(), toEpochMillis(event.operationCreatedAt()), event.status());
+            return snapshot;
+        });
+    }
+
+    // прогрев после деплоя: снимки с диска догоняются по outbox до того, как придут первые запросы
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreCheckpoints() {
+        if (store == null)
+            return;
+
+        long started = System.nanoTime();
+        int restored = 0;
+        for (CompanyColumnarSnapshot snapshot : store.readAll()) {
+            Long companyId = snapshot.getCompanyId();
+            // контрольная точка новее базы - базу восстанавливали из бэкапа, снимок строится заново
+            if (!isEnabledFor(companyId) || snapshot.getSequence() > jdbcTemplate.queryForObject(SELECT_SEQUENCE, Long.class, companyId)) {
+                store.delete(companyId);
+                continue;
+            }
+            checkpointedSequences.put(companyId, snapshot.getSequence());
+            catchUp(snapshot);
+            snapshots.put(companyId, snapshot);
+            restored++;
+        }
+        if (restored > 0)
+            log.info("Restored {} columnar snapshots from checkpoints in {} ms", restored,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Scheduled(fixedDelayString = "${app.columnar.checkpoint.interval-ms:300000}",
+            initialDelayString = "${app.columnar.checkpoint.interval-ms:300000}")
+    public void writeCheckpoints() {
+        if (store == null)
+            return;
+
+        for (CompanyColumnarSnapshot snapshot : snapshots.asMap().values()) {
+            Long written = checkpointedSequences.get(snapshot.getCompanyId());
+            if (written != null && written == snapshot.getSequence())
+                continue;
+            try {
+                checkpointedSequences.put(snapshot.getCompanyId(), store.write(snapshot));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to checkpoint columnar snapshot of company {}: {}", snapshot.getCompanyId(), ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeCheckpoints();
+        pool.shutdown();
+    }
+
+    private CompanyColumnarSnapshot build(Long companyId) {
+        return buildTimer.record(() -> snapshotTransaction.execute(tx -> {
+            long sequence = jdbcTemplate.queryForObject(SELECT_SEQUENCE, Long.class, companyId);
+            var builder = CompanyColumnarSnapshot.builder(companyId, sequence);
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_ROWS);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, companyId);
+                statement.setLong(2, companyId);
+                return statement;
+            }, rs -> {
+                String status = rs.getString("approved_status");
+                long sum = rs.getLong("sum");
+                Long boxedSum = rs.wasNull() ? null : sum;
+                long projectId = rs.getLong("project_id");
+                builder.add(rs.getLong("id"),
+                        rs.getTimestamp("created_at").getTime(),
+                        boxedSum,
+                        rs.wasNull() ? null : projectId,
+                        status == null ? null : RequestStatuses.valueOf(status),
+                        rs.getString("type_of_operation"),
+                        rs.getString("name_of_counterparty"));
+            });
+            CompanyColumnarSnapshot snapshot = builder.build();
+            log.info("Built columnar snapshot of company {}: {} rows at sequence {}", companyId, snapshot.size(), sequence);
+            return snapshot;
+        }));
+    }
+
+    private void catchUp(CompanyColumnarSnapshot snapshot) {
+        while (true) {
+            List<OperationEventModel> events = operationEventService.readAfter(
+                    snapshot.getCompanyId(), snapshot.getSequence(), replayBatchSize);
+            for (OperationEventModel event : events) {
+                snapshot.apply(event.getSequence(), event.getEventType(), event.getRequestId(), event.getProjectId(),
+                        event.getTypeOfOperation(), event.getNameOfCounterparty(), event.getSum(),
+                        toEpochMillis(event.getOperationCreatedAt()), event.getStatus());
+            }
+            if (events.size() < replayBatchSize || snapshot.getSequence() < events.getLast().getSequence())
+                return;
+        }
+    }
+
+    private static long toEpochMillis(ZonedDateTime createdAt) {
+        return createdAt == null ? 0 : createdAt.toInstant().toEpochMilli();
+    }
+}
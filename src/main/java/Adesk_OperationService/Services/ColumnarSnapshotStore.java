@@ -0,0 +1,240 @@
+package Adesk_OperationService.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Контрольные точки колоночных снимков в локальных файлах, по файлу на компанию.
+ * Файл пишется через отображение в память во временный файл и атомарно переименовывается,
+ * поэтому после падения на диске остается либо старая, либо новая контрольная точка.
+ * Формат: заголовок (магическое число, версия, id компании, номер события outbox, размеры),
+ * затем колонки подряд, словари строк в UTF-8 и CRC32 всего предыдущего содержимого.
+ * Обрезанный или поврежденный файл не восстанавливается: снимок строится заново из БД
+ */
+public class ColumnarSnapshotStore {
+    private final Logger log = LoggerFactory.getLogger(ColumnarSnapshotStore.class);
+    private static final int MAGIC = 0x41444B43; //ADKC
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final int ROW_BYTES = 8 * 4 + 4 * 2 + 1;
+    private static final int CHECKSUM_BYTES = 4;
+    private static final String SUFFIX = ".col";
+
+    private final Path directory;
+
+    public ColumnarSnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Записывает контрольную точку снимка, заменяя предыдущую
+     *
+     * @param snapshot снимок компании
+     * @return номер события outbox, до которого записан снимок
+     */
+    public long write(CompanyColumnarSnapshot snapshot) {
+        var checkpoint = snapshot.checkpoint();
+        var c = checkpoint.columns();
+        int size = checkpoint.statuses().length;
+        List<byte[]> types = encode(c.types, c.typeCount);
+        List<byte[]> counterparties = encode(c.counterparties, c.counterpartyCount);
+        long length = HEADER_BYTES + (long) size * ROW_BYTES + dictionaryBytes(types) + dictionaryBytes(counterparties)
+                + CHECKSUM_BYTES;
+
+        Path target = file(snapshot.getCompanyId());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(snapshot.getCompanyId())
+                        .putLong(checkpoint.sequence())
+                        .putInt(size)
+                        .putInt(types.size())
+                        .putInt(counterparties.size());
+                putLongs(buffer, c.ids, size);
+                putLongs(buffer, c.epochMillis, size);
+                putLongs(buffer, c.sums, size);
+                putLongs(buffer, c.projectIds, size);
+                putInts(buffer, c.typeCodes, size);
+                putInts(buffer, c.counterpartyCodes, size);
+                buffer.put(checkpoint.statuses(), 0, size);
+                putStrings(buffer, types);
+                putStrings(buffer, counterparties);
+                buffer.putInt(checksum(buffer, (int) length - CHECKSUM_BYTES));
+                buffer.force();
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return checkpoint.sequence();
+    }
+
+    /**
+     * Читает все контрольные точки каталога. Обрезанные, поврежденные файлы и файлы другой версии формата удаляются
+     *
+     * @return снимки с номерами событий, на которых они были записаны
+     */
+    public List<CompanyColumnarSnapshot> readAll() {
+        if (!Files.isDirectory(directory))
+            return List.of();
+
+        List<CompanyColumnarSnapshot> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(x -> x.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                try {
+                    snapshots.add(read(file));
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("Dropping unreadable columnar checkpoint {}: {}", file, ex.getMessage());
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return snapshots;
+    }
+
+    public void delete(Long companyId) {
+        try {
+            Files.deleteIfExists(file(companyId));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private CompanyColumnarSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + CHECKSUM_BYTES || fileSize > Integer.MAX_VALUE)
+                throw new IllegalStateException("truncated file");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IllegalStateException("unknown format");
+            int bodyBytes = (int) fileSize - CHECKSUM_BYTES;
+            if (checksum(buffer, bodyBytes) != buffer.getInt(bodyBytes))
+                throw new IllegalStateException("checksum mismatch");
+            long companyId = buffer.getLong();
+            long sequence = buffer.getLong();
+            int size = buffer.getInt();
+            int typeCount = buffer.getInt();
+            int counterpartyCount = buffer.getInt();
+            // каждая строка словаря занимает хотя бы 4 байта длины
+            if (size < 0 || typeCount < 0 || counterpartyCount < 0
+                    || HEADER_BYTES + (long) size * ROW_BYTES + 4L * (typeCount + (long) counterpartyCount) > bodyBytes)
+                throw new IllegalStateException("inconsistent header");
+
+            // запас под новые заявки, чтобы первая же вставка не копировала массивы
+            int capacity = size + size / 8 + 16;
+            long[] ids = getLongs(buffer, size, capacity);
+            long[] epochMillis = getLongs(buffer, size, capacity);
+            long[] sums = getLongs(buffer, size, capacity);
+            long[] projectIds = getLongs(buffer, size, capacity);
+            int[] typeCodes = getInts(buffer, size, capacity);
+            int[] counterpartyCodes = getInts(buffer, size, capacity);
+            byte[] statuses = new byte[capacity];
+            buffer.get(statuses, 0, size);
+            String[] types = getStrings(buffer, typeCount);
+            String[] counterparties = getStrings(buffer, counterpartyCount);
+            if (buffer.position() != bodyBytes)
+                throw new IllegalStateException("inconsistent dictionaries");
+
+            var columns = new CompanyColumnarSnapshot.Columns(ids, epochMillis, sums, projectIds, statuses,
+                    typeCodes, counterpartyCodes, size, types, typeCount, counterparties, counterpartyCount);
+            return CompanyColumnarSnapshot.restore(companyId, columns, sequence);
+        }
+    }
+
+    private Path file(Long companyId) {
+        return directory.resolve("company-" + companyId + SUFFIX);
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int length) {
+        var crc = new CRC32();
+        crc.update(buffer.slice(0, length));
+        return (int) crc.getValue();
+    }
+
+    private static void putLongs(MappedByteBuffer buffer, long[] values, int size) {
+        buffer.asLongBuffer().put(values, 0, size);
+        buffer.position(buffer.position() + size * 8);
+    }
+
+    private static void putInts(MappedByteBuffer buffer, int[] values, int size) {
+        buffer.asIntBuffer().put(values, 0, size);
+        buffer.position(buffer.position() + size * 4);
+    }
+
+    private static long[] getLongs(MappedByteBuffer buffer, int size, int capacity) {
+        long[] values = new long[capacity];
+        buffer.asLongBuffer().get(values, 0, size);
+        buffer.position(buffer.position() + size * 8);
+        return values;
+    }
+
+    private static int[] getInts(MappedByteBuffer buffer, int size, int capacity) {
+        int[] values = new int[capacity];
+        buffer.asIntBuffer().get(values, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        return values;
+    }
+
+    // null кодируется длиной -1
+    private static List<byte[]> encode(String[] values, int count) {
+        List<byte[]> encoded = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            encoded.add(values[i] == null ? null : values[i].getBytes(StandardCharsets.UTF_8));
+        return encoded;
+    }
+
+    private static long dictionaryBytes(List<byte[]> values) {
+        long bytes = 0;
+        for (byte[] value : values)
+            bytes += 4 + (value == null ? 0 : value.length);
+        return bytes;
+    }
+
+    private static void putStrings(MappedByteBuffer buffer, List<byte[]> values) {
+        for (byte[] value : values) {
+            if (value == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(value.length);
+                buffer.put(value);
+            }
+        }
+    }
+
+    private static String[] getStrings(MappedByteBuffer buffer, int count) {
+        String[] values = new String[Math.max(count + 16, 8)];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < 0)
+                continue;
+            if (length > buffer.remaining())
+                throw new IllegalStateException("truncated dictionary");
+            byte[] value = new byte[length];
+            buffer.get(value);
+            values[i] = new String(value, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,499 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ColumnarStatisticDTO;
+import Adesk_OperationService.Model.StatBlockItemDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Заявки одной компании в колонках: параллельные массивы примитивов, строка - индекс.
+ * Контрагент и тип операции хранятся кодами словаря, удаленная и отклоненная заявка -
+ * статусом REMOVED: отклонение удаляет заявку (deleted_at), и в SQL-статистике ее тоже нет. Строки упорядочены по id, чтобы переход статуса находился двоичным поиском.
+ * Чтение идет без блокировок по опубликованному через volatile снимку Columns: добавление в конец
+ * пишет за его границей, вставка в середину и рост массивов создают новые массивы.
+ * Агрегация делит диапазон строк на части и считает их в ForkJoinPool,
+ * на строку не создается ни одного объекта
+ */
+public final class CompanyColumnarSnapshot {
+    public static final byte REMOVED = -1;
+    private static final RequestStatuses[] STATUSES = RequestStatuses.values();
+    private static final int MIN_SPLIT_ROWS = 1 << 14;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Long companyId;
+    private final Map<String, Integer> counterpartyCodes = new HashMap<>();
+    private final Map<String, Integer> typeCodes = new HashMap<>();
+    private volatile Columns columns;
+    private volatile long sequence;
+
+    private CompanyColumnarSnapshot(Long companyId, Columns columns, long sequence) {
+        this.companyId = companyId;
+        this.columns = columns;
+        this.sequence = sequence;
+        for (int i = 0; i < columns.counterpartyCount; i++)
+            counterpartyCodes.put(columns.counterparties[i], i);
+        for (int i = 0; i < columns.typeCount; i++)
+            typeCodes.put(columns.types[i], i);
+    }
+
+    public static Builder builder(Long companyId, long sequence) {
+        return new Builder(companyId, sequence);
+    }
+
+    // снимок, прочитанный из контрольной точки на диске
+    static CompanyColumnarSnapshot restore(Long companyId, Columns columns, long sequence) {
+        return new CompanyColumnarSnapshot(companyId, columns, sequence);
+    }
+
+    /**
+     * Согласованная копия для контрольной точки: колонки и номер события берутся под блокировкой
+     * писателя, статусы копируются, потому что меняются на месте
+     */
+    synchronized Checkpoint checkpoint() {
+        Columns c = columns;
+        return new Checkpoint(c, Arrays.copyOf(c.statuses, c.size), sequence);
+    }
+
+    record Checkpoint(Columns columns, byte[] statuses, long sequence) {
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    /**
+     * @return номер последнего события outbox, которое учтено в снимке
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * Примерный размер в памяти, используется как вес в кэше снимков
+     *
+     * @return байты
+     */
+    public long estimatedBytes() {
+        Columns c = columns;
+        // id, время, сумма, проект по 8 байт, два кода словаря по 4, статус 1
+        return (long) c.ids.length * 41 + (c.counterpartyCount + c.typeCount) * 64L;
+    }
+
+    /**
+     * Применяет событие outbox. Уже учтенные события пропускаются, поэтому одно и то же
+     * событие можно применять и из слушателя, и при догоняющем чтении outbox
+     *
+     * @return false, если между снимком и событием есть пропущенные события
+     */
+    public synchronized boolean apply(long eventSequence, OperationEventTypes type, Long requestId, Long projectId,
+                                      String typeOfOperation, String nameOfCounterparty, Long sum,
+                                      long createdAtMillis, RequestStatuses status) {
+        if (eventSequence <= sequence)
+            return true;
+        if (eventSequence != sequence + 1)
+            return false;
+
+        switch (type) {
+            case CREATED -> insert(requestId, createdAtMillis, sum, projectId, status,
+                    code(typeCodes, typeOfOperation, true), code(counterpartyCodes, nameOfCounterparty, false));
+            case APPROVED -> setStatus(requestId, (byte) RequestStatuses.APPROVED.ordinal());
+            case DISAPPROVED, DELETED -> setStatus(requestId, REMOVED);
+        }
+        sequence = eventSequence;
+        return true;
+    }
+
+    /**
+     * Итоги по заявкам в промежутке [fromMillis, toMillis)
+     *
+     * @param fromMillis начало, epoch ms
+     * @param toMillis конец, epoch ms
+     * @param projectId проект (null - все проекты)
+     * @param status статус (null - все, кроме удаленных; DISAPPROVED не хранится)
+     * @param pool пул для параллельного подсчета
+     * @return итоги в разрезе проекта, типа операции, контрагента и статуса
+     */
+    public ColumnarStatisticDTO aggregate(long fromMillis, long toMillis, Long projectId,
+                                          RequestStatuses status, ForkJoinPool pool) {
+        Columns c = columns;
+        long sequenceAtRead = sequence;
+        var filter = new Filter(fromMillis, toMillis, projectId != null, projectId == null ? 0 : projectId,
+                status == null ? -1 : status.ordinal());
+        int splitRows = Math.max(MIN_SPLIT_ROWS, c.size / (pool.getParallelism() * 4) + 1);
+        Totals totals = pool.invoke(new AggregateTask(c, filter, 0, c.size, splitRows));
+
+        var result = new ColumnarStatisticDTO();
+        result.total = totals.total.toItem("total");
+        result.byProject = totals.byProject.toItems(key -> key == 0 ? null : String.valueOf(key));
+        result.byTypeOfOperation = totals.byType.toItems(key -> c.types[(int) key]);
+        result.byCounterparty = totals.byCounterparty.toItems(key -> key < 0 ? null : c.counterparties[(int) key]);
+        result.byStatus = totals.byStatus.toItems(key -> STATUSES[(int) key].name());
+        result.snapshotRows = c.size;
+        result.snapshotSequence = sequenceAtRead;
+        return result;
+    }
+
+    // ========== ИЗМЕНЕНИЕ ==========
+
+    private void insert(Long requestId, long createdAtMillis, Long sum, Long projectId, RequestStatuses status,
+                        int typeCode, int counterpartyCode) {
+        Columns c = columns;
+        long id = requestId;
+        int position = c.size == 0 || c.ids[c.size - 1] < id ? c.size : lowerBound(c.ids, c.size, id);
+        if (position < c.size && c.ids[position] == id)
+            return;
+
+        Columns target = c;
+        if (position < c.size || c.size == c.ids.length) {
+            // вставка в середину или рост: читатели продолжают со старыми массивами
+            target = c.copy(c.size == c.ids.length ? c.ids.length * 2 : c.ids.length);
+            target.shiftRight(position, c.size);
+        }
+        target.ids[position] = id;
+        target.epochMillis[position] = createdAtMillis;
+        target.sums[position] = sum == null ? 0 : sum;
+        target.projectIds[position] = projectId == null ? 0 : projectId;
+        target.statuses[position] = status == null ? REMOVED : (byte) status.ordinal();
+        target.typeCodes[position] = typeCode;
+        target.counterpartyCodes[position] = counterpartyCode;
+        columns = target.withSize(c.size + 1);
+    }
+
+    private void setStatus(Long requestId, byte status) {
+        Columns c = columns;
+        int position = lowerBound(c.ids, c.size, requestId);
+        if (position == c.size || c.ids[position] != requestId)
+            return;
+        c.statuses[position] = status;
+        columns = c.withSize(c.size); //публикация изменения для читателей
+    }
+
+    // код словаря, новое значение дописывается в конец массива значений
+    private int code(Map<String, Integer> codes, String value, boolean types) {
+        if (value == null && !types)
+            return -1;
+        Integer existing = codes.get(value);
+        if (existing != null)
+            return existing;
+
+        Columns c = columns;
+        int code = codes.size();
+        if (types) {
+            String[] values = c.typeCount == c.types.length ? Arrays.copyOf(c.types, c.types.length * 2) : c.types;
+            values[code] = value;
+            columns = c.withTypes(values, code + 1);
+        } else {
+            String[] values = c.counterpartyCount == c.counterparties.length
+                    ? Arrays.copyOf(c.counterparties, c.counterparties.length * 2)
+                    : c.counterparties;
+            values[code] = value;
+            columns = c.withCounterparties(values, code + 1);
+        }
+        codes.put(value, code);
+        return code;
+    }
+
+    private static int lowerBound(long[] ids, int size, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    // ========== АГРЕГАЦИЯ ==========
+
+    private record Filter(long fromMillis, long toMillis, boolean byProject, long projectId, int status) {
+    }
+
+    private static final class AggregateTask extends RecursiveTask<Totals> {
+        private final Columns c;
+        private final Filter filter;
+        private final int from;
+        private final int to;
+        private final int splitRows;
+
+        private AggregateTask(Columns c, Filter filter, int from, int to, int splitRows) {
+            this.c = c;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.splitRows = splitRows;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > splitRows) {
+                int middle = (from + to) >>> 1;
+                AggregateTask left = new AggregateTask(c, filter, from, middle, splitRows);
+                left.fork();
+                Totals right = new AggregateTask(c, filter, middle, to, splitRows).compute();
+                return left.join().merge(right);
+            }
+
+            Totals totals = new Totals();
+            long[] epochMillis = c.epochMillis;
+            long[] sums = c.sums;
+            long[] projectIds = c.projectIds;
+            byte[] statuses = c.statuses;
+            int[] typeCodes = c.typeCodes;
+            int[] counterpartyCodes = c.counterpartyCodes;
+            for (int i = from; i < to; i++) {
+                byte status = statuses[i];
+                if (status == REMOVED || (filter.status >= 0 && status != filter.status))
+                    continue;
+                long epoch = epochMillis[i];
+                if (epoch < filter.fromMillis || epoch >= filter.toMillis)
+                    continue;
+                if (filter.byProject && projectIds[i] != filter.projectId)
+                    continue;
+
+                long sum = sums[i];
+                totals.total.add(0, sum);
+                totals.byProject.add(projectIds[i], sum);
+                totals.byType.add(typeCodes[i], sum);
+                totals.byCounterparty.add(counterpartyCodes[i], sum);
+                totals.byStatus.add(status, sum);
+            }
+            return totals;
+        }
+    }
+
+    private static final class Totals {
+        private final GroupTotals total = new GroupTotals(1);
+        private final GroupTotals byProject = new GroupTotals(16);
+        private final GroupTotals byType = new GroupTotals(4);
+        private final GroupTotals byCounterparty = new GroupTotals(64);
+        private final GroupTotals byStatus = new GroupTotals(4);
+
+        private Totals merge(Totals other) {
+            total.merge(other.total);
+            byProject.merge(other.byProject);
+            byType.merge(other.byType);
+            byCounterparty.merge(other.byCounterparty);
+            byStatus.merge(other.byStatus);
+            return this;
+        }
+    }
+
+    // итоги по группам в открытой адресации: ключ -> count, total, income, outcome
+    private static final class GroupTotals {
+        private long[] keys;
+        private boolean[] used;
+        private long[] counts;
+        private long[] totals;
+        private long[] incomes;
+        private long[] outcomes;
+        private int size;
+
+        private GroupTotals(int expected) {
+            allocate(Integer.highestOneBit(Math.max(2, expected * 2) - 1) << 1);
+        }
+
+        private void add(long key, long sum) {
+            int slot = slot(key);
+            counts[slot]++;
+            totals[slot] += sum;
+            if (sum > 0)
+                incomes[slot] += sum;
+            else
+                outcomes[slot] += sum;
+        }
+
+        private void merge(GroupTotals other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (!other.used[i])
+                    continue;
+                int slot = slot(other.keys[i]);
+                counts[slot] += other.counts[i];
+                totals[slot] += other.totals[i];
+                incomes[slot] += other.incomes[i];
+                outcomes[slot] += other.outcomes[i];
+            }
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key)
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+            if (size + 1 > keys.length / 2) {
+                grow();
+                return slot(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldCounts = counts;
+            long[] oldTotals = totals;
+            long[] oldIncomes = incomes;
+            long[] oldOutcomes = outcomes;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (!oldUsed[i])
+                    continue;
+                int slot = slot(oldKeys[i]);
+                counts[slot] = oldCounts[i];
+                totals[slot] = oldTotals[i];
+                incomes[slot] = oldIncomes[i];
+                outcomes[slot] = oldOutcomes[i];
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            counts = new long[capacity];
+            totals = new long[capacity];
+            incomes = new long[capacity];
+            outcomes = new long[capacity];
+            size = 0;
+        }
+
+        private StatBlockItemDTO toItem(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i])
+                    return new StatBlockItemDTO(key, counts[i], totals[i], incomes[i], outcomes[i]);
+            }
+            return new StatBlockItemDTO(key, 0, 0, 0, 0);
+        }
+
+        private List<StatBlockItemDTO> toItems(LongFunction<String> keyName) {
+            List<StatBlockItemDTO> items = new ArrayList<>(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i])
+                    items.add(new StatBlockItemDTO(keyName.apply(keys[i]), counts[i], totals[i], incomes[i], outcomes[i]));
+            }
+            items.sort(Comparator.comparingLong(StatBlockItemDTO::getTotal).reversed());
+            return items;
+        }
+    }
+
+    // ========== КОЛОНКИ ==========
+
+    static final class Columns {
+        final long[] ids;
+        final long[] epochMillis;
+        final long[] sums;
+        final long[] projectIds; //0 - без проекта
+        final byte[] statuses;   //ordinal RequestStatuses или REMOVED
+        final int[] typeCodes;
+        final int[] counterpartyCodes; //-1 - без контрагента
+        final int size;
+        final String[] types;
+        final int typeCount;
+        final String[] counterparties;
+        final int counterpartyCount;
+
+        Columns(long[] ids, long[] epochMillis, long[] sums, long[] projectIds, byte[] statuses,
+                int[] typeCodes, int[] counterpartyCodes, int size,
+                String[] types, int typeCount, String[] counterparties, int counterpartyCount) {
+            this.ids = ids;
+            this.epochMillis = epochMillis;
+            this.sums = sums;
+            this.projectIds = projectIds;
+            this.statuses = statuses;
+            this.typeCodes = typeCodes;
+            this.counterpartyCodes = counterpartyCodes;
+            this.size = size;
+            this.types = types;
+            this.typeCount = typeCount;
+            this.counterparties = counterparties;
+            this.counterpartyCount = counterpartyCount;
+        }
+
+        static Columns empty(int capacity) {
+            return new Columns(new long[capacity], new long[capacity], new long[capacity], new long[capacity],
+                    new byte[capacity], new int[capacity], new int[capacity], 0,
+                    new String[8], 0, new String[64], 0);
+        }
+
+        Columns copy(int capacity) {
+            return new Columns(Arrays.copyOf(ids, capacity), Arrays.copyOf(epochMillis, capacity),
+                    Arrays.copyOf(sums, capacity), Arrays.copyOf(projectIds, capacity),
+                    Arrays.copyOf(statuses, capacity), Arrays.copyOf(typeCodes, capacity),
+                    Arrays.copyOf(counterpartyCodes, capacity), size,
+                    types, typeCount, counterparties, counterpartyCount);
+        }
+
+        // освобождает место под строку position, только для массивов, которых не видят читатели
+        void shiftRight(int position, int size) {
+            int length = size - position;
+            System.arraycopy(ids, position, ids, position + 1, length);
+            System.arraycopy(epochMillis, position, epochMillis, position + 1, length);
+            System.arraycopy(sums, position, sums, position + 1, length);
+            System.arraycopy(projectIds, position, projectIds, position + 1, length);
+            System.arraycopy(statuses, position, statuses, position + 1, length);
+            System.arraycopy(typeCodes, position, typeCodes, position + 1, length);
+            System.arraycopy(counterpartyCodes, position, counterpartyCodes, position + 1, length);
+        }
+
+        Columns withSize(int newSize) {
+            return new Columns(ids, epochMillis, sums, projectIds, statuses, typeCodes, counterpartyCodes, newSize,
+                    types, typeCount, counterparties, counterpartyCount);
+        }
+
+        Columns withTypes(String[] newTypes, int newTypeCount) {
+            return new Columns(ids, epochMillis, sums, projectIds, statuses, typeCodes, counterpartyCodes, size,
+                    newTypes, newTypeCount, counterparties, counterpartyCount);
+        }
+
+        Columns withCounterparties(String[] newCounterparties, int newCounterpartyCount) {
+            return new Columns(ids, epochMillis, sums, projectIds, statuses, typeCodes, counterpartyCodes, size,
+                    types, typeCount, newCounterparties, newCounterpartyCount);
+        }
+    }
+
+    /**
+     * Накопление строк при потоковом чтении из БД, строки должны идти в порядке id
+     */
+    public static final class Builder {
+        private final CompanyColumnarSnapshot snapshot;
+
+        private Builder(Long companyId, long sequence) {
+            this.snapshot = new CompanyColumnarSnapshot(companyId, Columns.empty(INITIAL_CAPACITY), sequence);
+        }
+
+        public Builder add(long id, long createdAtMillis, Long sum, Long projectId, RequestStatuses status,
+                           String typeOfOperation, String nameOfCounterparty) {
+            synchronized (snapshot) {
+                snapshot.insert(id, createdAtMillis, sum, projectId, status == RequestStatuses.DISAPPROVED ? null : status,
+                        snapshot.code(snapshot.typeCodes, typeOfOperation, true),
+                        snapshot.code(snapshot.counterpartyCodes, nameOfCounterparty, false));
+            }
+            return this;
+        }
+
+        public CompanyColumnarSnapshot build() {
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.CounterpartySuggestionDTO;
+import Adesk_OperationService.Model.CounterpartyUsageRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Контрагенты одной компании в двух отсортированных массивах: по нормализованному имени
+ * и по оценке. Узкий префикс - двоичный поиск диапазона в первом массиве и проход по нему,
+ * широкий (пустой, одна буква, общее начало вроде "ооо") - проход по второму массиву
+ * от лучшей оценки до первых limit совпадений. Чтение идет без блокировок
+ * по неизменяемому снимку, добавление пересобирает снимок
+ */
+public final class CounterpartyIndex {
+    // диапазон префикса до такого размера ранжируется кучей, шире - проходом по массиву оценок
+    static final int MAX_SCANNED = 5000;
+    private static final double RECENCY_HALF_LIFE_DAYS = 30;
+    private static final Comparator<Entry> BY_RANK = Comparator.comparingDouble(Entry::rank).reversed()
+            .thenComparing(Entry::key);
+
+    // последнее событие outbox, уже учтенное в статистике из БД
+    private final long loadedSequence;
+    private volatile Snapshot snapshot;
+
+    private CounterpartyIndex(Snapshot snapshot, long loadedSequence) {
+        this.snapshot = snapshot;
+        this.loadedSequence = loadedSequence;
+    }
+
+    /**
+     * Строит индекс по статистике использования. Варианты написания, отличающиеся
+     * регистром и пробелами по краям, сливаются, показывается самый частый вариант
+     *
+     * @param usage контрагенты с частотой и последним использованием
+     * @param loadedSequence номер последнего события компании на момент чтения статистики
+     * @return индекс
+     */
+    public static CounterpartyIndex build(List<? extends CounterpartyUsageRow> usage, long loadedSequence) {
+        Map<String, Entry> byKey = new HashMap<>();
+        for (CounterpartyUsageRow row : usage) {
+            String key = normalize(row.getName());
+            if (key.isEmpty())
+                continue;
+            long frequency = row.getFrequency() == null ? 0 : row.getFrequency();
+            long lastUsed = row.getLastUsedEpoch() == null ? 0 : row.getLastUsedEpoch();
+            byKey.merge(key, new Entry(key, row.getName().trim(), frequency, lastUsed), Entry::merge);
+        }
+
+        Entry[] entries = byKey.values().toArray(new Entry[0]);
+        Arrays.sort(entries, Comparator.comparing(Entry::key));
+        Entry[] byRank = entries.clone();
+        Arrays.sort(byRank, BY_RANK);
+        return new CounterpartyIndex(new Snapshot(entries, byRank), loadedSequence);
+    }
+
+    /**
+     * Учитывает новое использование контрагента. События, которые уже попали
+     * в статистику при построении индекса, пропускаются
+     *
+     * @param name имя из заявки
+     * @param usedAtEpoch время заявки, секунды
+     * @param sequence номер события в outbox компании
+     * @return false, если событие уже учтено
+     */
+    public synchronized boolean add(String name, long usedAtEpoch, long sequence) {
+        String key = normalize(name);
+        if (key.isEmpty() || sequence <= loadedSequence)
+            return false;
+
+        Entry[] entries = snapshot.entries;
+        Entry[] byRank = snapshot.byRank;
+        int index = lowerBound(entries, key);
+        Entry[] updated;
+        Entry[] updatedByRank;
+        if (index < entries.length && entries[index].key.equals(key)) {
+            Entry merged = entries[index].merge(new Entry(key, name.trim(), 1, usedAtEpoch));
+            updated = entries.clone();
+            updated[index] = merged;
+            updatedByRank = insert(remove(byRank, Arrays.binarySearch(byRank, entries[index], BY_RANK)), merged);
+        } else {
+            Entry created = new Entry(key, name.trim(), 1, usedAtEpoch);
+            updated = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, updated, 0, index);
+            updated[index] = created;
+            System.arraycopy(entries, index, updated, index + 1, entries.length - index);
+            updatedByRank = insert(byRank, created);
+        }
+        snapshot = new Snapshot(updated, updatedByRank);
+        return true;
+    }
+
+    /**
+     * Подсказки по началу имени, самые частые и недавние первыми
+     *
+     * @param prefix начало имени (без учета регистра)
+     * @param limit сколько подсказок вернуть
+     * @return подсказки
+     */
+    public List<CounterpartySuggestionDTO> suggest(String prefix, int limit) {
+        Snapshot current = snapshot;
+        Entry[] entries = current.entries;
+        String key = normalize(prefix);
+        int start = lowerBound(entries, key);
+        int end = prefixEnd(entries, key, start);
+
+        List<CounterpartySuggestionDTO> suggestions = new ArrayList<>(Math.min(limit, end - start));
+        if (end - start > MAX_SCANNED) {
+            // совпадений много, поэтому они часто встречаются и среди лучших по оценке
+            for (Entry entry : current.byRank) {
+                if (suggestions.size() == limit)
+                    break;
+                if (entry.key.startsWith(key))
+                    suggestions.add(toSuggestion(entry));
+            }
+            return suggestions;
+        }
+
+        // лучшие limit совпадений в куче, худшее наверху
+        PriorityQueue<Entry> best = new PriorityQueue<>(limit + 1, BY_RANK.reversed());
+        for (int i = start; i < end; i++) {
+            best.add(entries[i]);
+            if (best.size() > limit)
+                best.poll();
+        }
+        while (!best.isEmpty())
+            suggestions.add(toSuggestion(best.poll()));
+        return suggestions.reversed();
+    }
+
+    public int size() {
+        return snapshot.entries.length;
+    }
+
+    /**
+     * Примерный размер в памяти, используется как вес в кэше индексов
+     *
+     * @return байты
+     */
+    public int estimatedBytes() {
+        return snapshot.estimatedBytes;
+    }
+
+    private static CounterpartySuggestionDTO toSuggestion(Entry entry) {
+        return new CounterpartySuggestionDTO(entry.displayName, entry.frequency, entry.lastUsedEpoch);
+    }
+
+    private static int lowerBound(Entry[] entries, String key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].key.compareTo(key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    // имена с префиксом идут подряд с start, поэтому конец диапазона ищется тоже двоичным поиском
+    private static int prefixEnd(Entry[] entries, String key, int start) {
+        int low = start;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].key.startsWith(key))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private static Entry[] remove(Entry[] byRank, int index) {
+        Entry[] updated = new Entry[byRank.length - 1];
+        System.arraycopy(byRank, 0, updated, 0, index);
+        System.arraycopy(byRank, index + 1, updated, index, byRank.length - index - 1);
+        return updated;
+    }
+
+    private static Entry[] insert(Entry[] byRank, Entry entry) {
+        int index = -Arrays.binarySearch(byRank, entry, BY_RANK) - 1;
+        Entry[] updated = new Entry[byRank.length + 1];
+        System.arraycopy(byRank, 0, updated, 0, index);
+        updated[index] = entry;
+        System.arraycopy(byRank, index, updated, index + 1, byRank.length - index);
+        return updated;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Snapshot {
+        private final Entry[] entries;
+        private final Entry[] byRank;
+        private final int estimatedBytes;
+
+        private Snapshot(Entry[] entries, Entry[] byRank) {
+            this.entries = entries;
+            this.byRank = byRank;
+            int bytes = 64 + entries.length * 16;
+            for (Entry entry : entries)
+                bytes += 96 + 2 * (entry.key.length() + entry.displayName.length());
+            this.estimatedBytes = bytes;
+        }
+    }
+
+    private record Entry(String key, String displayName, long frequency, long lastUsedEpoch) {
+
+        // частота суммируется, отображается самый частый вариант написания
+        private Entry merge(Entry other) {
+            String name = other.frequency > frequency ? other.displayName : displayName;
+            return new Entry(key, name, frequency + other.frequency, Math.max(lastUsedEpoch, other.lastUsedEpoch));
+        }
+
+        // логарифм частоты, затухающей вдвое за RECENCY_HALF_LIFE_DAYS с последнего использования.
+        // Затухание всех записей к текущему моменту - общий множитель, поэтому порядок
+        // от времени запроса не зависит и массив по оценке можно держать готовым
+        private double rank() {
+            return Math.log(Math.max(1, frequency)) + lastUsedEpoch * Math.log(2) / (RECENCY_HALF_LIFE_DAYS * 86400);
+        }
+    }
+}
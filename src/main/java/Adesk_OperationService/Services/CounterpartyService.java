@@ -0,0 +1,101 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Events.CompanyCachesInvalidatedEvent;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.CounterpartySuggestionDTO;
+import Adesk_OperationService.Repository.CompanyEventSequenceRepository;
+import Adesk_OperationService.Repository.RequestRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Подсказки имени контрагента. Индекс компании строится при первом запросе
+ * подсказок, дальше пополняется по событиям создания заявок. Все индексы вместе
+ * ограничены app.counterparties.cache-max-bytes, давно не использованные вытесняются.
+ * Статистика читается вместе с номером последнего события компании в одной транзакции
+ * REPEATABLE READ, события с номером не больше него индекс пропускает: заявка, созданная
+ * во время построения, учитывается ровно один раз
+ */
+@Service
+public class CounterpartyService {
+    private final RequestRepository requestRepository;
+    private final CompanyEventSequenceRepository companyEventSequenceRepository;
+    private final TransactionTemplate loadTransaction;
+    private final LoadingCache<Long, CounterpartyIndex> indexes;
+
+    public CounterpartyService(RequestRepository requestRepository,
+                               CompanyEventSequenceRepository companyEventSequenceRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.counterparties.cache-max-bytes:67108864}") long maxBytes,
+                               @Value("${app.counterparties.expire-after-access-minutes:60}") long expireAfterAccessMinutes) {
+        this.requestRepository = requestRepository;
+        this.companyEventSequenceRepository = companyEventSequenceRepository;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.loadTransaction.setReadOnly(true);
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long companyId, CounterpartyIndex index) -> index.estimatedBytes())
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .recordStats()
+                .build(this::load);
+    }
+
+    /**
+     * Подсказки по началу имени контрагента
+     *
+     * @param companyId id компании
+     * @param prefix начало имени
+     * @param limit сколько подсказок вернуть
+     * @return самые частые и недавние контрагенты с таким началом
+     */
+    public List<CounterpartySuggestionDTO> suggest(Long companyId, String prefix, int limit) {
+        return indexes.get(companyId).suggest(prefix, limit);
+    }
+
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        if (event.type() != OperationEventTypes.CREATED || event.nameOfCounterparty() == null)
+            return;
+
+        long usedAt = event.operationCreatedAt() == null
+                ? Instant.now().getEpochSecond()
+                : event.operationCreatedAt().toEpochSecond();
+        // индекс, которого нет в памяти, не строится: он соберется из БД при первом запросе
+        // и уже будет содержать эту заявку. Если построение идет прямо сейчас, computeIfPresent
+        // дождется его, а уже прочитанное из БД событие индекс пропустит по номеру.
+        // Повторная вставка пересчитывает вес индекса
+        indexes.asMap().computeIfPresent(event.companyId(), (companyId, index) -> {
+            index.add(event.nameOfCounterparty(), usedAt, event.sequence());
+            return index;
+        });
+    }
+
+    private CounterpartyIndex load(Long companyId) {
+        return loadTransaction.execute(status -> {
+            long loadedSequence = companyEventSequenceRepository.lastSequence(companyId);
+            return CounterpartyIndex.build(requestRepository.findCounterpartyUsage(companyId), loadedSequence);
+        });
+    }
+
+    // индекс строится заново из БД при следующем запросе подсказок
+    @EventListener
+    public void onCachesInvalidated(CompanyCachesInvalidatedEvent event) {
+        if (event.companyId() == null)
+            indexes.invalidateAll();
+        else
+            indexes.invalidate(event.companyId());
+    }
+}
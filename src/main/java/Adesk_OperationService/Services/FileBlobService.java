@@ -0,0 +1,138 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.FileBlobModel;
+import Adesk_OperationService.Repository.FileBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище содержимого вложений по sha256. Хеш считается при чтении загрузки,
+ * уже известное содержимое повторно не пишется - увеличивается только ref_count.
+ * Ссылки освобождаются при физическом удалении строк files (очистка удаленных заявок, архивация),
+ * блобы без ссылок удаляются по расписанию
+ */
+@Service
+public class FileBlobService {
+    private final Logger log = LoggerFactory.getLogger(FileBlobService.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final FileBlobRepository fileBlobRepository;
+    private final int gcBatchSize;
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+    private final Counter savedBytesCounter;
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final AtomicLong blobs = new AtomicLong();
+    private final AtomicLong references = new AtomicLong();
+
+    public FileBlobService(FileBlobRepository fileBlobRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.file-blobs.gc-batch-size:100}") int gcBatchSize) {
+        this.fileBlobRepository = fileBlobRepository;
+        this.gcBatchSize = gcBatchSize;
+        this.hitsCounter = meterRegistry.counter("files.dedup.hits");
+        this.missesCounter = meterRegistry.counter("files.dedup.misses");
+        this.savedBytesCounter = meterRegistry.counter("files.dedup.saved.bytes");
+        Gauge.builder("files.blobs.stored.bytes", storedBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("files.blobs.logical.bytes", logicalBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("files.blobs.count", blobs, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("files.blobs.references", references, AtomicLong::get).register(meterRegistry);
+        // во сколько раз меньше места занимают вложения благодаря дедупликации
+        Gauge.builder("files.dedup.ratio", this, x -> x.storedBytes.get() == 0
+                ? 1.0
+                : (double) x.logicalBytes.get() / x.storedBytes.get()).register(meterRegistry);
+    }
+
+    /**
+     * Сохраняет содержимое загрузки или добавляет ссылку на уже сохраненное
+     *
+     * @param multipartFile загруженный файл
+     * @return ссылка на блоб для FileModel
+     * @throws IOException если загрузку не удалось прочитать
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public FileBlobModel store(MultipartFile multipartFile) throws IOException {
+        MessageDigest digest = sha256();
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.max(32, multipartFile.getSize()));
+        try (InputStream input = new DigestInputStream(multipartFile.getInputStream(), digest)) {
+            input.transferTo(content);
+        }
+        String sha256 = HEX.formatHex(digest.digest());
+
+        if (fileBlobRepository.addReference(sha256) > 0) {
+            hitsCounter.increment();
+            savedBytesCounter.increment(content.size());
+        } else {
+            missesCounter.increment();
+            fileBlobRepository.insertOrAddReference(sha256, content.toByteArray(), content.size());
+        }
+        return fileBlobRepository.getReferenceById(sha256);
+    }
+
+    /**
+     * Освобождает ссылки удаленных строк files
+     *
+     * @param hashes content_sha256 удаленных файлов, повторы - несколько ссылок, null пропускаются
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Collection<String> hashes) {
+        Map<String, Long> counts = hashes.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        counts.forEach(fileBlobRepository::releaseReferences);
+    }
+
+    @Scheduled(fixedDelayString = "${app.file-blobs.gc-interval-ms:60000}")
+    public void collectGarbage() {
+        try {
+            int deleted;
+            int total = 0;
+            do {
+                deleted = fileBlobRepository.deleteUnreferenced(gcBatchSize);
+                total += deleted;
+            } while (deleted == gcBatchSize);
+            if (total > 0)
+                log.info("Deleted {} unreferenced file blobs", total);
+
+            var stats = fileBlobRepository.findStats();
+            storedBytes.set(stats.getStoredBytes());
+            logicalBytes.set(stats.getLogicalBytes());
+            blobs.set(stats.getBlobs());
+            references.set(stats.getReferenceCount());
+        } catch (Exception ex) {
+            log.error("Failed to collect file blobs: {}", ex.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
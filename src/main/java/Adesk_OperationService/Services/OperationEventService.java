@@ -0,0 +1,94 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.OperationEventModel;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Repository.CompanyEventSequenceRepository;
+import Adesk_OperationService.Repository.OperationEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class OperationEventService {
+    private final OperationEventRepository operationEventRepository;
+    private final CompanyEventSequenceRepository sequenceRepository;
+    private final StatisticRollupService statisticRollupService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Записывает событие в outbox в текущей транзакции изменения заявки,
+     * переносит заявку в дневных итогах и публикует его внутри приложения (слушатели получают его после коммита).
+     * Другие экземпляры сервиса получают уведомление о сбросе кэшей компании тоже после коммита
+     *
+     * @param type тип события
+     * @param request заявка в состоянии после изменения
+     * @param previousStatus статус до изменения (null для создания)
+     * @param actorEmail кто выполнил действие
+     * @return записанное событие
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OperationEventModel record(OperationEventTypes type, RequestModel request,
+                                      RequestStatuses previousStatus, String actorEmail) {
+        var event = new OperationEventModel();
+        event.setCompanyId(request.getCompanyId());
+        event.setSequence(sequenceRepository.nextSequence(request.getCompanyId()));
+        event.setEventType(type);
+        event.setRequestId(request.getId());
+        event.setProjectId(request.getProjectId());
+        event.setTypeOfOperation(request.getTypeOfOperation());
+        event.setNameOfCounterparty(request.getNameOfCounterparty());
+        event.setSum(request.getSum());
+        event.setOperationCreatedAt(request.getCreatedAt());
+        event.setPreviousStatus(previousStatus);
+        event.setStatus(request.getApprovedStatus());
+        event.setActorEmail(actorEmail);
+        event.setCreatedAt(ZonedDateTime.now());
+        operationEventRepository.save(event);
+        statisticRollupService.apply(type, request, previousStatus);
+        cacheInvalidationBus.publish(request.getCompanyId(), request.getId());
+
+        eventPublisher.publishEvent(toLifecycleEvent(event));
+        return event;
+    }
+
+    /**
+     * Читает пачку событий компании после курсора в порядке номеров
+     *
+     * @param companyId id компании
+     * @param afterSequence последний уже обработанный номер (0 - с начала)
+     * @param limit размер пачки
+     * @return события с номером больше afterSequence
+     */
+    public List<OperationEventModel> readAfter(Long companyId, long afterSequence, int limit) {
+        return operationEventRepository.findByCompanyIdAndSequenceGreaterThanOrderBySequenceAsc(
+                companyId, afterSequence, Limit.of(limit));
+    }
+
+    public static OperationLifecycleEvent toLifecycleEvent(OperationEventModel event) {
+        return new OperationLifecycleEvent(
+                event.getSequence(),
+                event.getEventType(),
+                event.getCompanyId(),
+                event.getRequestId(),
+                event.getProjectId(),
+                event.getTypeOfOperation(),
+                event.getNameOfCounterparty(),
+                event.getSum(),
+                event.getOperationCreatedAt(),
+                event.getPreviousStatus(),
+                event.getStatus(),
+                event.getActorEmail()
+        );
+    }
+}
@@ -0,0 +1,52 @@
+package Adesk_OperationService.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Заранее создает помесячные секции requests и files, чтобы новые записи
+ * не попадали в секцию по умолчанию. Старые секции можно отцеплять через
+ * ALTER TABLE ... DETACH PARTITION без переписывания таблицы
+ */
+@Service
+public class PartitionMaintenanceService {
+    private final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+    private static final List<String> PARTITIONED_TABLES = List.of("requests", "files");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+
+    public PartitionMaintenanceService(JdbcTemplate jdbcTemplate,
+                                       @Value("${app.partitions.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensureFuturePartitions();
+    }
+
+    @Scheduled(cron = "${app.partitions.cron:0 0 3 * * *}")
+    public void ensureFuturePartitions() {
+        LocalDate currentMonth = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+        for (String table : PARTITIONED_TABLES) {
+            try {
+                jdbcTemplate.queryForList("SELECT ensure_monthly_partitions(?, ?, ?)",
+                        table, currentMonth, monthsAhead + 1);
+            } catch (Exception ex) {
+                log.error("Failed to create partitions for {}: {}", table, ex.getMessage());
+            }
+        }
+    }
+}
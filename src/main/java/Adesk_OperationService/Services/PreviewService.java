@@ -0,0 +1,156 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Events.FilesStoredEvent;
+import Adesk_OperationService.Model.FileModel;
+import Adesk_OperationService.Model.FilePreview;
+import Adesk_OperationService.Repository.FilePreviewRepository;
+import Adesk_OperationService.Repository.FileRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class PreviewService {
+    private final Logger log = LoggerFactory.getLogger(PreviewService.class);
+    private static final String PREVIEW_CONTENT_TYPE = "image/jpeg";
+
+    private final FileRepository fileRepository;
+    private final FilePreviewRepository filePreviewRepository;
+    private final int maxSide;
+    private final ExecutorService executor;
+
+    public PreviewService(FileRepository fileRepository,
+                          FilePreviewRepository filePreviewRepository,
+                          @Value("${app.previews.max-side:320}") int maxSide,
+                          @Value("${app.previews.threads:2}") int threads,
+                          @Value("${app.previews.queue-capacity:256}") int queueCapacity) {
+        this.fileRepository = fileRepository;
+        this.filePreviewRepository = filePreviewRepository;
+        this.maxSide = maxSide;
+
+        AtomicInteger counter = new AtomicInteger();
+        // отдельный ограниченный пул: генерация превью не должна отнимать потоки у http
+        // при переполнении задача отбрасывается, превью тогда построится при первом запросе
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "preview-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Ставит в очередь генерацию превью для только что сохраненных файлов.
+     * Срабатывает после коммита транзакции, в которой сохранялась заявка
+     *
+     * @param event событие сохранения вложений
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilesStored(FilesStoredEvent event) {
+        for (Long fileId : event.fileIds()) {
+            executor.execute(() -> {
+                try {
+                    fileRepository.findById(fileId).ifPresent(this::generateAndStore);
+                } catch (Exception ex) {
+                    log.error("Failed to generate preview for file {}: {}", fileId, ex.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Возвращает превью файла, при отсутствии строит его синхронно
+     *
+     * @param fileId id файла
+     * @return превью или пустой Optional, если файла нет или для него нельзя построить превью
+     */
+    public Optional<FilePreview> getOrCreatePreview(Long fileId) {
+        var preview = filePreviewRepository.findVisibleByFileId(fileId);
+        if (preview.isPresent())
+            return preview;
+
+        return fileRepository.findVisibleById(fileId)
+                .flatMap(file -> Optional.ofNullable(generateAndStore(file)))
+                .flatMap(ignored -> filePreviewRepository.findVisibleByFileId(fileId));
+    }
+
+    private byte[] generateAndStore(FileModel file) {
+        if (!file.isPreviewable() || file.getContent() == null)
+            return null;
+
+        try {
+            BufferedImage source = readFirstImage(file);
+            if (source == null)
+                return null;
+
+            byte[] preview = encodeThumbnail(source);
+            filePreviewRepository.upsert(file.getId(), preview, PREVIEW_CONTENT_TYPE);
+            return preview;
+        } catch (IOException ex) {
+            log.warn("Cannot build preview for file {}: {}", file.getId(), ex.getMessage());
+            return null;
+        }
+    }
+
+    // для pdf рендерим первую страницу, картинки читаем как есть
+    private BufferedImage readFirstImage(FileModel file) throws IOException {
+        if (file.getOriginalFilename().toLowerCase().endsWith(".pdf")) {
+            try (PDDocument document = Loader.loadPDF(file.getContent())) {
+                if (document.getNumberOfPages() == 0)
+                    return null;
+                return new PDFRenderer(document).renderImageWithDPI(0, 72, ImageType.RGB);
+            }
+        }
+        return ImageIO.read(new ByteArrayInputStream(file.getContent()));
+    }
+
+    private byte[] encodeThumbnail(BufferedImage source) throws IOException {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // jpeg без альфа-канала, поэтому прозрачность заливаем белым
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(target, "jpg", out);
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
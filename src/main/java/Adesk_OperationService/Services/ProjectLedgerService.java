@@ -0,0 +1,99 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.ProjectLedgerDTO;
+import Adesk_OperationService.Repository.ProjectBalanceCheckpointRepository;
+import Adesk_OperationService.Repository.RequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Баланс проекта по утвержденным операциям. Баланс на дату берется из помесячной
+ * контрольной точки (поиск по индексу) и дневных итогов внутри месяца,
+ * без прохода по всем операциям проекта
+ */
+@Service
+@RequiredArgsConstructor
+public class ProjectLedgerService {
+    // начало истории для выписки без нижней границы
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+
+    private final ProjectBalanceCheckpointRepository checkpointRepository;
+    private final RequestRepository requestRepository;
+
+    /**
+     * Добавляет изменение баланса проекта ко всем точкам начиная с месяца операции
+     *
+     * @param companyId id компании
+     * @param projectId id проекта
+     * @param day день операции (системная временная зона)
+     * @param delta изменение баланса
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyApprovedDelta(Long companyId, Long projectId, LocalDate day, long delta) {
+        if (projectId == null || delta == 0)
+            return;
+        LocalDate month = day.withDayOfMonth(1);
+        checkpointRepository.ensureCheckpoint(companyId, projectId, month);
+        checkpointRepository.addFromMonth(companyId, projectId, month, delta);
+    }
+
+    /**
+     * Пересчитывает точки компании по дневным итогам, которые уже должны быть пересчитаны
+     *
+     * @param companyId id компании
+     * @return количество точек
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int rebuild(Long companyId) {
+        checkpointRepository.deleteByCompany(companyId);
+        return checkpointRepository.rebuildCompany(companyId);
+    }
+
+    /**
+     * Баланс проекта на конец дня
+     *
+     * @param companyId id компании
+     * @param projectId id проекта
+     * @param date день (системная временная зона)
+     * @return сумма утвержденных операций проекта по этот день включительно
+     */
+    public long getBalanceAt(Long companyId, Long projectId, LocalDate date) {
+        Long balance = checkpointRepository.findBalanceAt(companyId, projectId, date.withDayOfMonth(1), date);
+        return balance == null ? 0 : balance;
+    }
+
+    /**
+     * Выписка по проекту: утвержденные операции по порядку с балансом после каждой
+     *
+     * @param companyId id компании
+     * @param projectId id проекта
+     * @param from первый день (включительно), null - с начала истории
+     * @param to последний день (включительно), null - по сегодня
+     * @return выписка с входящим и исходящим балансом
+     */
+    @Transactional(readOnly = true)
+    public ProjectLedgerDTO getLedger(Long companyId, Long projectId, LocalDate from, LocalDate to) {
+        ZoneId systemZone = ZoneId.systemDefault();
+        LocalDate lastDay = to == null ? LocalDate.now(systemZone) : to;
+        long openingBalance = from == null ? 0 : getBalanceAt(companyId, projectId, from.minusDays(1));
+
+        var entries = requestRepository.findProjectLedger(companyId, projectId,
+                (from == null ? EPOCH : from).atStartOfDay(systemZone),
+                lastDay.plusDays(1).atStartOfDay(systemZone),
+                openingBalance);
+
+        ProjectLedgerDTO ledger = new ProjectLedgerDTO();
+        ledger.setProjectId(projectId);
+        ledger.setFrom(from);
+        ledger.setTo(lastDay);
+        ledger.setOpeningBalance(openingBalance);
+        ledger.setClosingBalance(entries.isEmpty() ? openingBalance : entries.get(entries.size() - 1).getBalance());
+        ledger.setEntries(entries);
+        return ledger;
+    }
+}
@@ -0,0 +1,41 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Events.CompanyCachesInvalidatedEvent;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Точечная очистка региона requests кэша второго уровня. Изменения через JPA hibernate
+ * и так отражает в кэше, очистка после коммита закрывает изменения в обход сессии
+ * (нативные UPDATE/DELETE) и не трогает записи других заявок
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestCacheService {
+    private final EntityManagerFactory entityManagerFactory;
+
+    public void evict(Long requestId) {
+        if (requestId != null)
+            entityManagerFactory.getCache().evict(RequestModel.class, requestId);
+    }
+
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        evict(event.requestId());
+    }
+
+    // по заявкам компании в кэше не найти, поэтому без списка заявок очищается весь регион
+    @EventListener
+    public void onCachesInvalidated(CompanyCachesInvalidatedEvent event) {
+        if (event.requestIds() == null) {
+            entityManagerFactory.getCache().evict(RequestModel.class);
+            return;
+        }
+        event.requestIds().forEach(this::evict);
+    }
+}
@@ -0,0 +1,142 @@
+package Adesk_OperationService.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Физически удаляет заявки, помеченные deleted_at, и их файлы. Сначала пачками по
+ * app.purge.file-batch-size удаляются файлы (основной объем WAL - содержимое bytea),
+ * вместе с их превью и с освобождением ссылок на file_blobs, затем заявки, у которых файлов не осталось. Каждая пачка - отдельная короткая транзакция,
+ * между пачками пауза app.purge.pause-ms. Строки, занятые другим узлом, пропускаются (SKIP LOCKED).
+ * Очистка идет через JdbcTemplate, мимо hibernate: удаленные заявки уже вытеснены из кэша второго уровня
+ */
+@Service
+public class RequestPurgeService {
+    private final Logger log = LoggerFactory.getLogger(RequestPurgeService.class);
+    private static final String PURGE_FILES = """
+            WITH batch AS (
+                SELECT f.id, f.uploaded_at FROM files f
+                JOIN requests r ON r.id = f.request_id
+                WHERE r.deleted_at IS NOT NULL AND r.deleted_at < now() - make_interval(secs => ?)
+                LIMIT ?
+                FOR UPDATE OF f SKIP LOCKED
+            ), deleted AS (
+                DELETE FROM files f USING batch b WHERE f.id = b.id AND f.uploaded_at = b.uploaded_at
+                RETURNING f.id, f.content_sha256
+            ), previews AS (
+                DELETE FROM file_previews p USING deleted d WHERE p.file_id = d.id
+            ), released AS (
+                UPDATE file_blobs fb SET ref_count = fb.ref_count - d.count
+                FROM (SELECT content_sha256, count(*) AS count FROM deleted
+                      WHERE content_sha256 IS NOT NULL GROUP BY content_sha256) d
+                WHERE fb.sha256 = d.content_sha256
+            )
+            SELECT count(*) FROM deleted
+            """;
+    private static final String PURGE_REQUESTS = """
+            WITH batch AS (
+                SELECT r.id, r.created_at FROM requests r
+                WHERE r.deleted_at IS NOT NULL AND r.deleted_at < now() - make_interval(secs => ?)
+                  AND NOT EXISTS (SELECT 1 FROM files f WHERE f.request_id = r.id)
+                ORDER BY r.deleted_at
+                LIMIT ?
+                FOR UPDATE OF r SKIP LOCKED
+            ), deleted AS (
+                DELETE FROM requests r USING batch b WHERE r.id = b.id AND r.created_at = b.created_at
+                RETURNING r.id
+            )
+            SELECT count(*) FROM deleted
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long graceSeconds;
+    private final int fileBatchSize;
+    private final int requestBatchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMillis;
+    private final AtomicLong backlogRequests = new AtomicLong();
+    private final AtomicLong backlogFiles = new AtomicLong();
+    private final Counter purgedRequestsCounter;
+    private final Counter purgedFilesCounter;
+
+    public RequestPurgeService(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.purge.enabled:true}") boolean enabled,
+                               @Value("${app.purge.grace-seconds:60}") long graceSeconds,
+                               @Value("${app.purge.file-batch-size:20}") int fileBatchSize,
+                               @Value("${app.purge.request-batch-size:200}") int requestBatchSize,
+                               @Value("${app.purge.max-batches-per-run:100}") int maxBatchesPerRun,
+                               @Value("${app.purge.pause-ms:200}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.graceSeconds = graceSeconds;
+        this.fileBatchSize = fileBatchSize;
+        this.requestBatchSize = requestBatchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMillis = pauseMillis;
+        this.purgedRequestsCounter = meterRegistry.counter("purge.requests.deleted");
+        this.purgedFilesCounter = meterRegistry.counter("purge.files.deleted");
+        Gauge.builder("purge.backlog.requests", backlogRequests, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("purge.backlog.files", backlogFiles, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.purge.interval-ms:30000}")
+    public void purgeDeleted() {
+        if (!enabled)
+            return;
+
+        try {
+            updateBacklog();
+            if (backlogRequests.get() == 0)
+                return;
+
+            int files = purgeInBatches(PURGE_FILES, fileBatchSize, purgedFilesCounter);
+            int requests = purgeInBatches(PURGE_REQUESTS, requestBatchSize, purgedRequestsCounter);
+            if (files > 0 || requests > 0)
+                log.info("Purged {} deleted requests and {} files", requests, files);
+            updateBacklog();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            log.error("Failed to purge deleted requests: {}", ex.getMessage());
+        }
+    }
+
+    private int purgeInBatches(String sql, int batchSize, Counter counter) throws InterruptedException {
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(sql, Integer.class, graceSeconds, batchSize));
+            if (deleted == null || deleted == 0)
+                break;
+            counter.increment(deleted);
+            total += deleted;
+            if (deleted < batchSize)
+                break;
+            TimeUnit.MILLISECONDS.sleep(pauseMillis);
+        }
+        return total;
+    }
+
+    private void updateBacklog() {
+        backlogRequests.set(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM requests WHERE deleted_at IS NOT NULL", Long.class));
+        backlogFiles.set(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM files f JOIN requests r ON r.id = f.request_id WHERE r.deleted_at IS NOT NULL",
+                Long.class));
+    }
+}
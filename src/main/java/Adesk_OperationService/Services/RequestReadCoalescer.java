@@ -0,0 +1,148 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Config.ReadYourWritesTracker;
+import Adesk_OperationService.Events.CompanyCachesInvalidatedEvent;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных чтений (single flight): пока запрос с ключом
+ * (компания, вид запроса, аргументы, версия изменений компании) выполняется, остальные такие же
+ * запросы ждут его результат вместо своего обращения к БД. Версия компании растет после коммита
+ * каждого изменения ее заявок и по уведомлениям о сбросе кэшей с других экземпляров, поэтому
+ * чтение, начатое после изменения, не присоединяется к запросу, начатому до него.
+ * Результат общий для всех ожидавших, поэтому загрузчик возвращает неизменяемые данные,
+ * не привязанные к сессии: неизменяемый список копий или проекций, а не сущности
+ * из контекста персистентности ведущего запроса.
+ * Пользователь, который недавно писал, читает сам: общий результат мог прийти с реплики
+ */
+@Service
+public class RequestReadCoalescer {
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, QueryCounters> counters = new ConcurrentHashMap<>();
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final ObjectProvider<ReadYourWritesTracker> readYourWritesTracker;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long waitTimeoutMillis;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public RequestReadCoalescer(ObjectProvider<ReadYourWritesTracker> readYourWritesTracker,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.read-coalescing.enabled:true}") boolean enabled,
+                                @Value("${app.read-coalescing.wait-timeout-ms:30000}") long waitTimeoutMillis) {
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        meterRegistry.gauge("read.coalescing.ratio", this,
+                x -> x.calls.get() == 0 ? 0 : (double) x.coalesced.get() / x.calls.get());
+        meterRegistry.gauge("read.coalescing.in-flight", inFlight, Map::size);
+    }
+
+    /**
+     * Выполняет чтение или присоединяется к такому же уже выполняющемуся
+     *
+     * @param companyId id компании
+     * @param query вид запроса, он же тег метрик
+     * @param arguments аргументы запроса кроме компании (должны корректно сравниваться через equals)
+     * @param loader само чтение, возвращает неизменяемый результат без управляемых сущностей
+     * @return результат, общий для всех одновременных одинаковых чтений
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(Long companyId, String query, Object arguments, Supplier<T> loader) {
+        if (!enabled)
+            return loader.get();
+        QueryCounters queryCounters = counters.computeIfAbsent(query, this::registerCounters);
+        ReadYourWritesTracker tracker = readYourWritesTracker.getIfAvailable();
+        if (tracker != null && tracker.mustReadFromPrimary(0)) {
+            queryCounters.bypassed.increment();
+            return loader.get();
+        }
+
+        calls.incrementAndGet();
+        queryCounters.calls.increment();
+        Key key = new Key(companyId, query, arguments, globalVersion.get(), version(companyId).get());
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            queryCounters.coalesced.increment();
+            return (T) await(existing, loader);
+        }
+
+        try {
+            T result = loader.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        version(event.companyId()).incrementAndGet();
+    }
+
+    @EventListener
+    public void onCachesInvalidated(CompanyCachesInvalidatedEvent event) {
+        if (event.companyId() == null)
+            globalVersion.incrementAndGet();
+        else
+            version(event.companyId()).incrementAndGet();
+    }
+
+    private QueryCounters registerCounters(String query) {
+        return new QueryCounters(meterRegistry.counter("read.coalescing.calls", "query", query),
+                meterRegistry.counter("read.coalescing.coalesced", "query", query),
+                meterRegistry.counter("read.coalescing.bypassed", "query", query));
+    }
+
+    private AtomicLong version(Long companyId) {
+        return versions.computeIfAbsent(companyId, x -> new AtomicLong());
+    }
+
+    // ошибка общего запроса достается всем ожидавшим, зависший запрос - повод прочитать самому
+    private Object await(CompletableFuture<Object> flight, Supplier<?> loader) {
+        try {
+            return flight.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            return loader.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record QueryCounters(Counter calls, Counter coalesced, Counter bypassed) {
+    }
+
+    private record Key(Long companyId, String query, Object arguments, long globalVersion, long version) {
+    }
+}
@@ -0,0 +1,292 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.RequestFields;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ApprovalQueueRow;
+import Adesk_OperationService.Model.ArchivedFileInfo;
+import Adesk_OperationService.Model.ArchivedRequestModel;
+import Adesk_OperationService.Model.FileInfo;
+import Adesk_OperationService.Model.FileModel;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Model.Period;
+import Adesk_OperationService.Model.RequestFilter;
+import Adesk_OperationService.Repository.ArchivedFileRepository;
+import Adesk_OperationService.Repository.ArchivedRequestRepository;
+import Adesk_OperationService.Repository.FileRepository;
+import Adesk_OperationService.Repository.RequestFieldsRepository;
+import Adesk_OperationService.Repository.RequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Чтение заявок из горячей таблицы и, когда запрошенный период заходит за границу архива,
+ * из requests_archive. Архивные записи возвращаются как RequestModel, не привязанные к сессии.
+ * Одинаковые одновременные чтения объединяются в одно (RequestReadCoalescer), поэтому
+ * возвращаются неизменяемые списки копий, не привязанных к сессии: сущности ведущего запроса
+ * остаются в его контексте персистентности (open-in-view) и другим запросам не передаются
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestReadService {
+    private final RequestRepository requestRepository;
+    private final ArchivedRequestRepository archivedRequestRepository;
+    private final ArchivedFileRepository archivedFileRepository;
+    private final FileRepository fileRepository;
+    private final ArchiveService archiveService;
+    private final RequestFieldsRepository requestFieldsRepository;
+    private final RequestReadCoalescer readCoalescer;
+
+    /**
+     * Очередь согласования компании: только заявки в статусе APPROVING, от новых к старым.
+     * Поля заявки и метаданные файлов читаются двумя запросами без содержимого файлов.
+     * В архиве только утвержденные операции, поэтому он не читается
+     *
+     * @param companyId id компании
+     * @return заявки на согласовании в том же виде, что и RequestModel
+     */
+    public List<RequestModel> findApprovalQueue(Long companyId) {
+        return readCoalescer.read(companyId, "approval-queue", null, () -> loadApprovalQueue(companyId));
+    }
+
+    private List<RequestModel> loadApprovalQueue(Long companyId) {
+        var rows = requestRepository.findApprovalQueueRows(companyId);
+        if (rows.isEmpty())
+            return List.of();
+
+        Map<Long, List<FileInfo>> filesByRequest = fileRepository
+                .findInfoByRequestIdIn(rows.stream().map(ApprovalQueueRow::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(FileInfo::getRequestId));
+
+        return List.copyOf(rows.stream()
+                .map(x -> toRequestModel(x, filesByRequest.getOrDefault(x.getId(), List.of())))
+                .toList());
+    }
+
+    /**
+     * Вся история компании: горячие записи плюс архив
+     *
+     * @param companyId id компании
+     * @return заявки компании
+     */
+    public List<RequestModel> findByCompanyId(Long companyId) {
+        return readCoalescer.read(companyId, "company-history", null, () -> loadByCompanyId(companyId));
+    }
+
+    private List<RequestModel> loadByCompanyId(Long companyId) {
+        var requests = new ArrayList<>(detached(requestRepository.findByCompanyId(companyId)));
+        requests.addAll(fromArchive(archivedRequestRepository.findByCompanyId(companyId)));
+        return List.copyOf(requests);
+    }
+
+    /**
+     * Заявки компании за период, архив читается только если период заходит за его границу
+     *
+     * @param companyId id компании
+     * @param period полуинтервал по created_at
+     * @return заявки за период
+     */
+    public List<RequestModel> findByCompanyIdInPeriod(Long companyId, Period period) {
+        return readCoalescer.read(companyId, "company-period", period, () -> loadByCompanyIdInPeriod(companyId, period));
+    }
+
+    private List<RequestModel> loadByCompanyIdInPeriod(Long companyId, Period period) {
+        var requests = detached(requestRepository.findByCompanyIdInPeriod(companyId, period.from(), period.to()));
+        if (!archiveService.reachesArchive(period.from()))
+            return List.copyOf(requests);
+
+        var result = new ArrayList<>(requests);
+        result.addAll(fromArchive(archivedRequestRepository.findByCompanyIdInPeriod(companyId, period.from(), period.to())));
+        return List.copyOf(result);
+    }
+
+    /**
+     * Вся история проекта: горячие записи плюс архив
+     *
+     * @param projectId id проекта
+     * @param companyId id компании
+     * @return заявки проекта
+     */
+    public List<RequestModel> findByProjectIdAndCompanyId(Long projectId, Long companyId) {
+        return readCoalescer.read(companyId, "project-history", projectId,
+                () -> loadByProjectIdAndCompanyId(projectId, companyId));
+    }
+
+    private List<RequestModel> loadByProjectIdAndCompanyId(Long projectId, Long companyId) {
+        var requests = new ArrayList<>(detached(requestRepository.findByProjectIdAndCompanyId(projectId, companyId)));
+        requests.addAll(fromArchive(archivedRequestRepository.findByProjectIdAndCompanyId(projectId, companyId)));
+        return List.copyOf(requests);
+    }
+
+    /**
+     * Заявки только с выбранными полями: в SELECT попадают только их колонки, файлы
+     * читаются отдельным запросом по метаданным и только если запрошено поле files.
+     * Архив читается по тем же правилам, что и для полных заявок
+     *
+     * @param fields выбранные поля
+     * @param filter условия выборки
+     * @return строки от новых к старым, ключи - имена полей
+     */
+    public List<Map<String, Object>> findFields(Set<RequestFields> fields, RequestFilter filter) {
+        return readCoalescer.read(filter.companyId(), "fields", List.of(fields, filter), () -> loadFields(fields, filter));
+    }
+
+    private List<Map<String, Object>> loadFields(Set<RequestFields> fields, RequestFilter filter) {
+        // в архиве только утвержденные операции
+        boolean includeArchive = (filter.status() == null || filter.status() == RequestStatuses.APPROVED)
+                && (filter.period() == null || archiveService.reachesArchive(filter.period().from()));
+        var rows = requestFieldsRepository.find(fields, filter, includeArchive);
+        if (rows.isEmpty() || !fields.contains(RequestFields.FILES))
+            return unmodifiable(rows);
+
+        List<Long> hotIds = new ArrayList<>();
+        List<Long> archivedIds = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Long id = (Long) row.get(RequestFieldsRepository.ROW_ID);
+            if ((Boolean) row.get(RequestFieldsRepository.ARCHIVED))
+                archivedIds.add(id);
+            else
+                hotIds.add(id);
+        }
+
+        Map<Long, List<FileModel>> filesByRequest = new HashMap<>();
+        if (!hotIds.isEmpty()) {
+            for (FileInfo file : fileRepository.findInfoByRequestIdIn(hotIds))
+                filesByRequest.computeIfAbsent(file.getRequestId(), x -> new ArrayList<>()).add(FileModel.builder()
+                        .id(file.getId())
+                        .originalFilename(file.getOriginalFilename())
+                        .fileSize(file.getFileSize())
+                        .href(file.getHref())
+                        .previewHref(file.getPreviewHref())
+                        .build());
+        }
+        if (!archivedIds.isEmpty()) {
+            for (ArchivedFileInfo file : archivedFileRepository.findInfoByRequestIdIn(archivedIds))
+                filesByRequest.computeIfAbsent(file.getRequestId(), x -> new ArrayList<>()).add(FileModel.builder()
+                        .id(file.getId())
+                        .originalFilename(file.getOriginalFilename())
+                        .fileSize(file.getFileSize())
+                        .href(file.getHref())
+                        .build());
+        }
+
+        for (Map<String, Object> row : rows) {
+            Long id = (Long) row.remove(RequestFieldsRepository.ROW_ID);
+            row.remove(RequestFieldsRepository.ARCHIVED);
+            row.put(RequestFields.FILES.getName(), List.copyOf(filesByRequest.getOrDefault(id, List.of())));
+        }
+        return unmodifiable(rows);
+    }
+
+    // значения полей бывают null, поэтому Map.copyOf не подходит
+    private static List<Map<String, Object>> unmodifiable(List<Map<String, Object>> rows) {
+        return rows.stream().map(Collections::unmodifiableMap).toList();
+    }
+
+    private List<RequestModel> detached(List<RequestModel> entities) {
+        return entities.stream().map(this::toRequestModel).toList();
+    }
+
+    private List<RequestModel> fromArchive(List<ArchivedRequestModel> archived) {
+        if (archived.isEmpty())
+            return List.of();
+
+        // метаданные файлов одним запросом, без содержимого
+        Map<Long, List<ArchivedFileInfo>> filesByRequest = archivedFileRepository
+                .findInfoByRequestIdIn(archived.stream().map(ArchivedRequestModel::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(ArchivedFileInfo::getRequestId));
+
+        return archived.stream()
+                .map(x -> toRequestModel(x, filesByRequest.getOrDefault(x.getId(), List.of())))
+                .toList();
+    }
+
+    // копия сущности с метаданными файлов, без содержимого и обратных ссылок
+    private RequestModel toRequestModel(RequestModel entity) {
+        var request = new RequestModel();
+        request.setId(entity.getId());
+        request.setDescription(entity.getDescription());
+        request.setTypeOfOperation(entity.getTypeOfOperation());
+        request.setProjectId(entity.getProjectId());
+        request.setNameOfCounterparty(entity.getNameOfCounterparty());
+        request.setSum(entity.getSum());
+        request.setCreatedAt(entity.getCreatedAt());
+        request.setCompanyId(entity.getCompanyId());
+        request.setCreatorLogin(entity.getCreatorLogin());
+        request.setCreatorEmail(entity.getCreatorEmail());
+        request.setResponsibleManager(entity.getResponsibleManager());
+        request.setApprovedStatus(entity.getApprovedStatus());
+        request.setVersion(entity.getVersion());
+        for (FileModel file : entity.getFiles()) {
+            request.getFiles().add(FileModel.builder()
+                    .id(file.getId())
+                    .originalFilename(file.getOriginalFilename())
+                    .fileSize(file.getFileSize())
+                    .href(file.getHref())
+                    .previewHref(file.getPreviewHref())
+                    .build());
+        }
+        return request;
+    }
+
+    private RequestModel toRequestModel(ApprovalQueueRow row, List<FileInfo> files) {
+        var request = new RequestModel();
+        request.setId(row.getId());
+        request.setDescription(row.getDescription());
+        request.setTypeOfOperation(row.getTypeOfOperation());
+        request.setProjectId(row.getProjectId());
+        request.setNameOfCounterparty(row.getNameOfCounterparty());
+        request.setSum(row.getSum());
+        request.setCreatedAt(row.getCreatedAt());
+        request.setCompanyId(row.getCompanyId());
+        request.setCreatorLogin(row.getCreatorLogin());
+        request.setCreatorEmail(row.getCreatorEmail());
+        request.setResponsibleManager(row.getResponsibleManager());
+        request.setApprovedStatus(row.getApprovedStatus());
+        request.setVersion(row.getVersion());
+        for (FileInfo file : files) {
+            request.getFiles().add(FileModel.builder()
+                    .id(file.getId())
+                    .originalFilename(file.getOriginalFilename())
+                    .fileSize(file.getFileSize())
+                    .href(file.getHref())
+                    .previewHref(file.getPreviewHref())
+                    .build());
+        }
+        return request;
+    }
+
+    private RequestModel toRequestModel(ArchivedRequestModel archived, List<ArchivedFileInfo> files) {
+        var request = new RequestModel();
+        request.setId(archived.getId());
+        request.setDescription(archived.getDescription());
+        request.setTypeOfOperation(archived.getTypeOfOperation());
+        request.setProjectId(archived.getProjectId());
+        request.setNameOfCounterparty(archived.getNameOfCounterparty());
+        request.setSum(archived.getSum());
+        request.setCreatedAt(archived.getCreatedAt());
+        request.setCompanyId(archived.getCompanyId());
+        request.setCreatorLogin(archived.getCreatorLogin());
+        request.setCreatorEmail(archived.getCreatorEmail());
+        request.setResponsibleManager(archived.getResponsibleManager());
+        request.setApprovedStatus(archived.getApprovedStatus());
+        for (ArchivedFileInfo file : files) {
+            request.getFiles().add(FileModel.builder()
+                    .id(file.getId())
+                    .originalFilename(file.getOriginalFilename())
+                    .fileSize(file.getFileSize())
+                    .href(file.getHref())
+                    .build());
+        }
+        return request;
+    }
+}
@@ -1,6 +1,8 @@
     package Adesk_OperationService.Services;
 
+    import Adesk_OperationService.Constants.OperationEventTypes;
     import Adesk_OperationService.Constants.RequestStatuses;
+    import Adesk_OperationService.Events.FilesStoredEvent;
     import Adesk_OperationService.Model.FileModel;
     import Adesk_OperationService.Model.OperationModel.RequestContext;
     import Adesk_OperationService.Model.OperationModel.Request.RequestFormDTO;
@@ -9,8 +11,10 @@
     import lombok.RequiredArgsConstructor;
     import org.slf4j.Logger;
     import org.slf4j.LoggerFactory;
+    import org.springframework.context.ApplicationEventPublisher;
     import org.springframework.scheduling.annotation.Async;
     import org.springframework.stereotype.Service;
+    import org.springframework.transaction.annotation.Transactional;
     import org.springframework.web.multipart.MultipartFile;
 
     import java.io.IOException;
@@ -24,9 +28,13 @@
     public class RequestService {
         private final Logger log = LoggerFactory.getLogger(RequestService.class);
         private final RequestRepository requestRepository;
+        private final ApplicationEventPublisher eventPublisher;
+        private final OperationEventService operationEventService;
+        private final FileBlobService fileBlobService;
 
 
         @Async
+        @Transactional
         public CompletableFuture<Long> createRequestAsync(RequestFormDTO form, RequestContext requestContext){
                 if(!form.isValid()) throw new IllegalArgumentException("Form is invalid");
 
@@ -60,6 +68,12 @@
                 }
 
                 requestRepository.save(newRequest);
+                operationEventService.record(OperationEventTypes.CREATED, newRequest, null, requestContext.userEmail());
+
+                if (!newRequest.getFiles().isEmpty()) //превью строятся в фоне после коммита
+                    eventPublisher.publishEvent(new FilesStoredEvent(newRequest.getId(),
+                            newRequest.getFiles().stream().map(FileModel::getId).toList()));
+
                 return CompletableFuture.completedFuture(newRequest.getId());
         }
 
@@ -70,7 +84,7 @@
             return FileModel.builder()
                     .originalFilename(multipartFile.getOriginalFilename())
                     .fileSize(multipartFile.getSize())
-                    .content(multipartFile.getBytes())
+                    .blob(fileBlobService.store(multipartFile)) //одинаковое содержимое хранится один раз
                     .userEmail(userEmail)
                     .companyId(request.getCompanyId())
                     .request(request) // Устанавливаем связь с Request
@@ -0,0 +1,115 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatusTransitions;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Model.StatusTransitionRow;
+import Adesk_OperationService.Repository.RequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Переходы статуса и удаление заявки без чтения сущности: условный UPDATE по текущему
+ * статусу из RequestStatusTransitions и, если передана, по версии. Проигравший
+ * параллельный переход получает пустой результат сразу, без ожидания блокировки строки
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestStatusService {
+    private final RequestRepository requestRepository;
+    private final OperationEventService operationEventService;
+
+    /**
+     * Утверждает заявку
+     *
+     * @param requestId id заявки
+     * @param expectedVersion версия, которую видел клиент (null - не проверять)
+     * @param actorEmail кто утверждает
+     * @return заявка после перехода или пустой Optional, если статус или версия уже другие
+     */
+    @Transactional
+    public Optional<RequestModel> approve(Long requestId, Long expectedVersion, String actorEmail) {
+        return requestRepository.compareAndSetStatus(requestId,
+                        RequestStatusTransitions.sourcesOf(RequestStatuses.APPROVED),
+                        RequestStatuses.APPROVED.name(),
+                        expectedVersion)
+                .map(row -> {
+                    var request = toRequestModel(row);
+                    var previousStatus = request.getApprovedStatus();
+                    request.setApprovedStatus(RequestStatuses.APPROVED); //запрос вернул статус до перехода
+                    operationEventService.record(OperationEventTypes.APPROVED, request, previousStatus, actorEmail);
+                    return request;
+                });
+    }
+
+    /**
+     * Отклоняет заявку: тем же запросом она помечается удаленной и сразу пропадает из чтения,
+     * строку и файлы позже удаляет RequestPurgeService
+     *
+     * @param requestId id заявки
+     * @param expectedVersion версия, которую видел клиент (null - не проверять)
+     * @param actorEmail кто отклоняет
+     * @return отклоненная заявка или пустой Optional, если статус или версия уже другие
+     */
+    @Transactional
+    public Optional<RequestModel> disapprove(Long requestId, Long expectedVersion, String actorEmail) {
+        return requestRepository.compareAndDelete(requestId,
+                        RequestStatusTransitions.sourcesOf(RequestStatuses.DISAPPROVED),
+                        expectedVersion)
+                .map(row -> {
+                    var request = toRequestModel(row);
+                    var previousStatus = request.getApprovedStatus();
+                    request.setApprovedStatus(RequestStatuses.DISAPPROVED); //запрос вернул статус до отклонения
+                    operationEventService.record(OperationEventTypes.DISAPPROVED, request, previousStatus, actorEmail);
+                    return request;
+                });
+    }
+
+    /**
+     * Удаляет заявки компании одним условным UPDATE: события и дневные итоги пишутся только
+     * для строк, которые удалил этот запрос, поэтому повторное или параллельное удаление
+     * не вычитает сумму дважды. Строки и файлы позже удаляет RequestPurgeService
+     *
+     * @param ids id заявок
+     * @param companyId id компании
+     * @param fromStatuses статусы, в которых заявку можно удалить
+     * @param creatorEmail удалять только заявки этого автора (null - любого)
+     * @param responsibleManager удалять только заявки этого ответственного (null - любого)
+     * @param actorEmail кто удаляет
+     * @return удаленные заявки со статусом на момент удаления
+     */
+    @Transactional
+    public List<RequestModel> delete(Collection<Long> ids, Long companyId, List<String> fromStatuses,
+                                     String creatorEmail, String responsibleManager, String actorEmail) {
+        var deleted = requestRepository.markDeleted(ids, companyId, fromStatuses, creatorEmail, responsibleManager)
+                .stream()
+                .map(this::toRequestModel)
+                .toList();
+        deleted.forEach(x -> operationEventService.record(OperationEventTypes.DELETED, x, x.getApprovedStatus(), actorEmail));
+        return deleted;
+    }
+
+    private RequestModel toRequestModel(StatusTransitionRow row) {
+        var request = new RequestModel();
+        request.setId(row.getId());
+        request.setDescription(row.getDescription());
+        request.setTypeOfOperation(row.getTypeOfOperation());
+        request.setProjectId(row.getProjectId());
+        request.setNameOfCounterparty(row.getNameOfCounterparty());
+        request.setSum(row.getSum());
+        request.setCreatedAt(row.getCreatedAt().toZonedDateTime());
+        request.setCompanyId(row.getCompanyId());
+        request.setCreatorLogin(row.getCreatorLogin());
+        request.setCreatorEmail(row.getCreatorEmail());
+        request.setResponsibleManager(row.getResponsibleManager());
+        request.setApprovedStatus(RequestStatuses.valueOf(row.getApprovedStatus()));
+        request.setVersion(row.getVersion());
+        return request;
+    }
+}
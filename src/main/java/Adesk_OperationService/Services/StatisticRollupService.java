@@ -0,0 +1,210 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Model.Period;
+import Adesk_OperationService.Model.PeriodStatisticDTO;
+import Adesk_OperationService.Model.RollupTotalsRow;
+import Adesk_OperationService.Model.StatBlockItemDTO;
+import Adesk_OperationService.Model.StatDTO;
+import Adesk_OperationService.Repository.CompanyEventSequenceRepository;
+import Adesk_OperationService.Repository.RequestDailyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Дневные итоги заявок (request_daily_rollups). Обновляются приращениями в той же транзакции,
+ * что и событие жизненного цикла, поэтому статистика за период читает не больше одной строки
+ * на день, проект, тип операции и статус вместо всех операций.
+ * Архивация итоги не меняет: архивные операции в них по-прежнему учитываются
+ */
+@Service
+public class StatisticRollupService {
+    private final Logger log = LoggerFactory.getLogger(StatisticRollupService.class);
+
+    private final RequestDailyRollupRepository rollupRepository;
+    private final CompanyEventSequenceRepository sequenceRepository;
+    private final ProjectLedgerService projectLedgerService;
+    private final TransactionTemplate transactionTemplate;
+
+    public StatisticRollupService(RequestDailyRollupRepository rollupRepository,
+                                  CompanyEventSequenceRepository sequenceRepository,
+                                  ProjectLedgerService projectLedgerService,
+                                  TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.projectLedgerService = projectLedgerService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Переносит заявку между дневными итогами по событию жизненного цикла:
+     * вычитает ее из итога прежнего статуса и, если заявка не удалена, добавляет к итогу нового
+     *
+     * @param type тип события
+     * @param request заявка в состоянии после изменения
+     * @param previousStatus статус до изменения (null для создания)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(OperationEventTypes type, RequestModel request, RequestStatuses previousStatus) {
+        if (request.getCompanyId() == null || request.getCreatedAt() == null)
+            return;
+
+        if (previousStatus != null)
+            applyDelta(request, previousStatus, -1);
+
+        boolean removed = type == OperationEventTypes.DELETED || type == OperationEventTypes.DISAPPROVED;
+        if (!removed && request.getApprovedStatus() != null)
+            applyDelta(request, request.getApprovedStatus(), 1);
+    }
+
+    private void applyDelta(RequestModel request, RequestStatuses status, int sign) {
+        long sum = request.getSum() == null ? 0 : request.getSum();
+        LocalDate day = toDay(request.getCreatedAt());
+        rollupRepository.applyDelta(
+                request.getCompanyId(),
+                request.getProjectId(),
+                request.getTypeOfOperation(),
+                status.name(),
+                day,
+                sign,
+                sign * sum,
+                sum > 0 ? sign * sum : 0);
+
+        // баланс проекта считается только по утвержденным операциям
+        if (status == RequestStatuses.APPROVED)
+            projectLedgerService.applyApprovedDelta(request.getCompanyId(), request.getProjectId(), day, sign * sum);
+    }
+
+    /**
+     * Статистика проекта за все время по дневным итогам
+     *
+     * @param companyId id компании
+     * @param projectId id проекта
+     * @return выручка, итог и количество операций
+     */
+    public StatDTO getProjectStatistic(Long companyId, Long projectId) {
+        StatDTO stat = new StatDTO();
+        stat.setRevenue(0d);
+        stat.setProfit(0d);
+        stat.setCountOfOperations(0L);
+        for (RollupTotalsRow row : rollupRepository.findProjectTotals(companyId, projectId)) {
+            stat.setRevenue(row.getPositiveTotal().doubleValue());
+            stat.setProfit(row.getTotal().doubleValue());
+            stat.setCountOfOperations(row.getCount());
+        }
+        return stat;
+    }
+
+    /**
+     * Статистика компании за период по дневным итогам. Итоги дневные, поэтому
+     * границы периода расширяются до целых дней (системная временная зона)
+     *
+     * @param companyId id компании
+     * @param period полуинтервал по created_at
+     * @return итоги за период в разрезе проекта, типа операции и статуса
+     */
+    public PeriodStatisticDTO getPeriodStatistic(Long companyId, Period period) {
+        ZoneId systemZone = ZoneId.systemDefault();
+        LocalDate fromDay = period.from().withZoneSameInstant(systemZone).toLocalDate();
+        ZonedDateTime to = period.to().withZoneSameInstant(systemZone);
+        LocalDate toDay = to.toLocalTime().equals(LocalTime.MIDNIGHT) ? to.toLocalDate() : to.toLocalDate().plusDays(1);
+
+        var rows = rollupRepository.findTotalsInPeriod(companyId, fromDay, toDay);
+
+        PeriodStatisticDTO stat = new PeriodStatisticDTO();
+        stat.setFrom(fromDay);
+        stat.setTo(toDay);
+        stat.setTotal(fold(rows, row -> null).getOrDefault(null, new StatBlockItemDTO(null, 0, 0, 0, 0)));
+        stat.setByProject(sorted(fold(rows, row -> row.getProjectId() == null ? null : row.getProjectId().toString())));
+        stat.setByTypeOfOperation(sorted(fold(rows, RollupTotalsRow::getTypeOfOperation)));
+        stat.setByStatus(sorted(fold(rows, RollupTotalsRow::getApprovedStatus)));
+        return stat;
+    }
+
+    private static Map<String, StatBlockItemDTO> fold(List<RollupTotalsRow> rows, Function<RollupTotalsRow, String> key) {
+        Map<String, StatBlockItemDTO> items = new LinkedHashMap<>();
+        for (RollupTotalsRow row : rows) {
+            String itemKey = key.apply(row);
+            var item = items.computeIfAbsent(itemKey, k -> new StatBlockItemDTO(k, 0, 0, 0, 0));
+            item.setCountOfOperations(item.getCountOfOperations() + row.getCount());
+            item.setTotal(item.getTotal() + row.getTotal());
+            item.setIncome(item.getIncome() + row.getPositiveTotal());
+            item.setOutcome(item.getTotal() - item.getIncome());
+        }
+        return items;
+    }
+
+    private static List<StatBlockItemDTO> sorted(Map<String, StatBlockItemDTO> items) {
+        return items.values().stream()
+                .sorted(Comparator.comparing(StatBlockItemDTO::getKey, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    /**
+     * Пересчитывает итоги компании и контрольные точки баланса проектов с нуля
+     * по горячей таблице и архиву.
+     * На время пересчета блокируется счетчик событий компании, поэтому
+     * параллельные изменения заявок дождутся конца пересчета и не потеряются
+     *
+     * @param companyId id компании
+     * @return количество записанных дневных итогов
+     */
+    @Transactional
+    public int rebuild(Long companyId) {
+        sequenceRepository.lockSequence(companyId);
+        rollupRepository.deleteByCompany(companyId);
+        int rows = rollupRepository.rebuildCompany(companyId, ZoneId.systemDefault().getId());
+        projectLedgerService.rebuild(companyId);
+        return rows;
+    }
+
+    /**
+     * Пересчитывает итоги всех компаний, каждую в своей транзакции
+     *
+     * @return количество пересчитанных компаний
+     */
+    public int rebuildAll() {
+        int companies = 0;
+        for (Long companyId : rollupRepository.findAllCompanyIds()) {
+            transactionTemplate.executeWithoutResult(status -> rebuild(companyId));
+            companies++;
+        }
+        return companies;
+    }
+
+    // первичное заполнение после миграции: таблица итогов пуста, а заявки уже есть
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        try {
+            if (rollupRepository.count() > 0)
+                return;
+            int companies = rebuildAll();
+            if (companies > 0)
+                log.info("Daily rollups backfilled for {} companies", companies);
+        } catch (Exception ex) {
+            log.error("Failed to backfill daily rollups: {}", ex.getMessage());
+        }
+    }
+
+    private static LocalDate toDay(ZonedDateTime createdAt) {
+        return createdAt.withZoneSameInstant(ZoneId.systemDefault()).toLocalDate();
+    }
+}
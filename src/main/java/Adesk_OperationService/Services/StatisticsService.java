@@ -0,0 +1,167 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Config.CacheConfig;
+import Adesk_OperationService.Events.CompanyCachesInvalidatedEvent;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import Adesk_OperationService.Model.ActivityHistogramDTO;
+import Adesk_OperationService.Model.ActivityHistogramRow;
+import Adesk_OperationService.Model.CashFlowDTO;
+import Adesk_OperationService.Model.Period;
+import Adesk_OperationService.Model.StatBlockItemDTO;
+import Adesk_OperationService.Model.StatisticsBlockRow;
+import Adesk_OperationService.Model.StatisticsBlocksDTO;
+import Adesk_OperationService.Model.TopOperationRow;
+import Adesk_OperationService.Repository.RequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class StatisticsService {
+    // шаг корзины денежного потока: ключ уходит в postgres как единица date_trunc и interval,
+    // ChronoUnit нужен только для подсчета корзин диапазона в Java
+    public static final Map<String, ChronoUnit> CASH_FLOW_GRANULARITIES = Map.of(
+            "day", ChronoUnit.DAYS,
+            "week", ChronoUnit.WEEKS,
+            "month", ChronoUnit.MONTHS
+    );
+
+    public static final Set<String> TOP_OPERATION_DIRECTIONS = Set.of("outflow", "income", "any");
+
+    private final RequestRepository requestRepository;
+    private final ArchiveService archiveService;
+    private final CacheManager cacheManager;
+
+    /**
+     * Блоки статистики дашборда: итоги по типу операции, проекту, контрагенту,
+     * месяцу (системная временная зона) и статусу. Считаются одним SQL запросом
+     * и кэшируются на несколько секунд на компанию
+     *
+     * @param companyId id компании
+     * @return блоки статистики
+     */
+    @Cacheable(cacheNames = CacheConfig.STATISTICS_BLOCKS_CACHE, key = "#companyId")
+    public StatisticsBlocksDTO getStatisticsBlocks(Long companyId) {
+        var blocks = new StatisticsBlocksDTO();
+        blocks.setTotal(new StatBlockItemDTO(null, 0, 0, 0, 0));
+
+        for (StatisticsBlockRow row : requestRepository.findStatisticsBlocks(companyId, ZoneId.systemDefault().getId())) {
+            long total = row.getTotal();
+            long income = row.getIncome();
+            var item = new StatBlockItemDTO(row.getKey(), row.getCount(), total, income, total - income);
+            switch (row.getBlock()) {
+                case "TYPE" -> blocks.getByTypeOfOperation().add(item);
+                case "PROJECT" -> blocks.getByProject().add(item);
+                case "COUNTERPARTY" -> blocks.getByCounterparty().add(item);
+                case "MONTH" -> blocks.getByMonth().add(item);
+                case "STATUS" -> blocks.getByStatus().add(item);
+                default -> blocks.setTotal(item);
+            }
+        }
+
+        blocks.getByMonth().sort(Comparator.comparing(StatBlockItemDTO::getKey, Comparator.nullsFirst(Comparator.naturalOrder())));
+        blocks.getByProject().sort(Comparator.comparingLong(StatBlockItemDTO::getTotal).reversed());
+        blocks.getByCounterparty().sort(Comparator.comparingLong(StatBlockItemDTO::getTotal).reversed());
+        return blocks;
+    }
+
+    /**
+     * Денежный поток по утвержденным операциям без пропусков: корзина есть для каждого
+     * дня, недели (с понедельника) или месяца диапазона, даже если операций в ней не было.
+     * Группировка и заполнение пропусков выполняются в postgres
+     *
+     * @param companyId id компании
+     * @param projectId id проекта, null - вся компания
+     * @param granularity day, week или month
+     * @param zone временная зона, в которой режутся корзины
+     * @param from первый день (включительно)
+     * @param to последний день (включительно)
+     * @return корзины по порядку
+     */
+    public CashFlowDTO getCashFlow(Long companyId, Long projectId, String granularity,
+                                   ZoneId zone, LocalDate from, LocalDate to) {
+        var cashFlow = new CashFlowDTO();
+        cashFlow.setGranularity(granularity);
+        cashFlow.setZone(zone.getId());
+        cashFlow.setProjectId(projectId);
+        cashFlow.setFrom(from);
+        cashFlow.setTo(to);
+        cashFlow.setBuckets(requestRepository.findCashFlow(companyId, projectId, granularity, zone.getId(),
+                from, to, from.atStartOfDay(zone), to.plusDays(1).atStartOfDay(zone)));
+        return cashFlow;
+    }
+
+    /**
+     * N крупнейших утвержденных операций за период. Postgres идет по индексу суммы от самой
+     * крупной операции и отбрасывает строки вне периода, в память попадают только N строк.
+     * Архив читается, только если период до него доходит
+     *
+     * @param companyId id компании
+     * @param period полуинтервал по created_at
+     * @param projectId id проекта, null - все проекты
+     * @param typeOfOperation тип операции, null - любой
+     * @param direction outflow, income или any (по модулю суммы)
+     * @param limit N
+     * @return операции от самой крупной
+     */
+    public List<TopOperationRow> getTopOperations(Long companyId, Period period, Long projectId,
+                                                  String typeOfOperation, String direction, int limit) {
+        return requestRepository.findTopOperations(companyId, period.from(), period.to(),
+                projectId, typeOfOperation, direction, archiveService.reachesArchive(period.from()), limit);
+    }
+
+    /**
+     * Сетка активности 7 x 24 за период: количество и сумма заявок по дню недели и часу.
+     * Заменяет отдельные проходы filterByMorning/filterByHour и т.п. одним GROUP BY в postgres
+     *
+     * @param companyId id компании
+     * @param period полуинтервал по created_at
+     * @param zone временная зона, в которой берутся день недели и час
+     * @return гистограмма, пустые ячейки заполнены нулями
+     */
+    public ActivityHistogramDTO getActivityHistogram(Long companyId, Period period, ZoneId zone) {
+        var histogram = new ActivityHistogramDTO();
+        histogram.setZone(zone.getId());
+        histogram.setFrom(period.from());
+        histogram.setTo(period.to());
+
+        for (ActivityHistogramRow row : requestRepository.findActivityHistogram(companyId, zone.getId(), period.from(), period.to())) {
+            int weekday = row.getWeekday() - 1;
+            histogram.getCounts()[weekday][row.getHour()] = row.getCount();
+            histogram.getSums()[weekday][row.getHour()] = row.getTotal();
+            histogram.setTotalCount(histogram.getTotalCount() + row.getCount());
+        }
+        return histogram;
+    }
+
+    // после любого изменения заявок компании кэш ее статистики сбрасывается
+    @TransactionalEventListener
+    public void onLifecycleEvent(OperationLifecycleEvent event) {
+        var cache = cacheManager.getCache(CacheConfig.STATISTICS_BLOCKS_CACHE);
+        if (cache != null)
+            cache.evict(event.companyId());
+    }
+
+    @EventListener
+    public void onCachesInvalidated(CompanyCachesInvalidatedEvent event) {
+        var cache = cacheManager.getCache(CacheConfig.STATISTICS_BLOCKS_CACHE);
+        if (cache == null)
+            return;
+        if (event.companyId() == null)
+            cache.clear();
+        else
+            cache.evict(event.companyId());
+    }
+}
@@ -1,6 +1,7 @@
 package Adesk_OperationService.Services;
 
 import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Model.Period;
 import Adesk_OperationService.Repository.RequestRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -884,4 +885,129 @@ public class TimeService {
 
 
 
+    // ========== ГРАНИЦЫ ПЕРИОДОВ ДЛЯ ЗАПРОСОВ В БД ==========
+    // Границы передаются в условие по created_at, чтобы postgres читал только нужные секции.
+    // Точная фильтрация и сортировка по-прежнему выполняются методами filterBy*
+
+    /**
+     * Границы сегодняшнего дня (системная временная зона)
+     *
+     * @return полуинтервал [начало дня, начало завтрашнего дня)
+     */
+    public Period getTodayPeriod() {
+        return getTodayPeriod(ZoneId.systemDefault());
+    }
+
+    /**
+     * Границы сегодняшнего дня в зоне клиента
+     *
+     * @param zone временная зона, в которой считаются сутки
+     * @return полуинтервал [начало дня, начало завтрашнего дня)
+     */
+    public Period getTodayPeriod(ZoneId zone) {
+        LocalDate today = LocalDate.now(zone);
+        return new Period(today.atStartOfDay(zone), today.plusDays(1).atStartOfDay(zone));
+    }
+
+    /**
+     * Границы текущей недели с понедельника по воскресенье (системная временная зона)
+     *
+     * @return полуинтервал [понедельник, следующий понедельник)
+     */
+    public Period getCurrentWeekPeriod() {
+        return getCurrentWeekPeriod(ZoneId.systemDefault());
+    }
+
+    /**
+     * Границы текущей недели с понедельника по воскресенье в зоне клиента
+     *
+     * @param zone временная зона, в которой считаются сутки
+     * @return полуинтервал [понедельник, следующий понедельник)
+     */
+    public Period getCurrentWeekPeriod(ZoneId zone) {
+        LocalDate startOfWeek = LocalDate.now(zone).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return new Period(startOfWeek.atStartOfDay(zone), startOfWeek.plusWeeks(1).atStartOfDay(zone));
+    }
+
+    /**
+     * Границы текущего месяца (системная временная зона)
+     *
+     * @return полуинтервал [первое число, первое число следующего месяца)
+     */
+    public Period getCurrentMonthPeriod() {
+        return getCurrentMonthPeriod(ZoneId.systemDefault());
+    }
+
+    /**
+     * Границы текущего месяца в зоне клиента
+     *
+     * @param zone временная зона, в которой считаются сутки
+     * @return полуинтервал [первое число, первое число следующего месяца)
+     */
+    public Period getCurrentMonthPeriod(ZoneId zone) {
+        LocalDate startOfMonth = YearMonth.now(zone).atDay(1);
+        return new Period(startOfMonth.atStartOfDay(zone), startOfMonth.plusMonths(1).atStartOfDay(zone));
+    }
+
+    /**
+     * Границы текущего квартала (системная временная зона)
+     *
+     * @return полуинтервал [начало квартала, начало следующего квартала)
+     */
+    public Period getCurrentQuarterPeriod() {
+        return getCurrentQuarterPeriod(ZoneId.systemDefault());
+    }
+
+    /**
+     * Границы текущего квартала в зоне клиента
+     *
+     * @param zone временная зона, в которой считаются сутки
+     * @return полуинтервал [начало квартала, начало следующего квартала)
+     */
+    public Period getCurrentQuarterPeriod(ZoneId zone) {
+        LocalDate today = LocalDate.now(zone);
+        LocalDate startOfQuarter = LocalDate.of(today.getYear(), (getFinancialQuarter(today) - 1) * 3 + 1, 1);
+        return new Period(startOfQuarter.atStartOfDay(zone), startOfQuarter.plusMonths(3).atStartOfDay(zone));
+    }
+
+    /**
+     * Границы текущего года (системная временная зона)
+     *
+     * @return полуинтервал [1 января, 1 января следующего года)
+     */
+    public Period getCurrentYearPeriod() {
+        return getCurrentYearPeriod(ZoneId.systemDefault());
+    }
+
+    /**
+     * Границы текущего года в зоне клиента
+     *
+     * @param zone временная зона, в которой считаются сутки
+     * @return полуинтервал [1 января, 1 января следующего года)
+     */
+    public Period getCurrentYearPeriod(ZoneId zone) {
+        LocalDate startOfYear = Year.now(zone).atDay(1);
+        return new Period(startOfYear.atStartOfDay(zone), startOfYear.plusYears(1).atStartOfDay(zone));
+    }
+
+    /**
+     * Границы произвольного промежутка (строковый ввод, системная временная зона)
+     *
+     * @param startDateTimeString начало промежутка в формате "yyyy-MM-dd'T'HH:mm:ss" (включительно)
+     * @param endDateTimeString конец промежутка в формате "yyyy-MM-dd'T'HH:mm:ss" (включительно)
+     * @return полуинтервал, покрывающий промежуток
+     */
+    public Period getPeriod(String startDateTimeString, String endDateTimeString) {
+        ZoneId systemZone = ZoneId.systemDefault();
+        LocalDateTime startDateTime = LocalDateTime.parse(startDateTimeString);
+        LocalDateTime endDateTime = LocalDateTime.parse(endDateTimeString);
+
+        if (startDateTime.isAfter(endDateTime)) {
+            throw new IllegalArgumentException("Start datetime cannot be after end datetime");
+        }
+
+        // конец включительный, поэтому берем следующую секунду
+        return new Period(startDateTime.atZone(systemZone), endDateTime.plusSeconds(1).atZone(systemZone));
+    }
+
 }
\ No newline at end of file
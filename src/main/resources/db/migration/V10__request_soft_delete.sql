@@ -0,0 +1,11 @@
+-- Логическое удаление: удаление и отклонение только проставляют deleted_at,
+-- строки и файлы физически удаляет фоновая очистка небольшими пачками
+ALTER TABLE requests ADD COLUMN deleted_at timestamp(6) with time zone;
+
+-- очередь на физическое удаление, в норме почти пустая
+CREATE INDEX idx_requests_deleted ON requests (deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- удаленные заявки в статусе APPROVING не должны оставаться в индексе очереди согласования
+DROP INDEX idx_requests_approving_company_created;
+CREATE INDEX idx_requests_approving_company_created ON requests (company_id, created_at DESC)
+    WHERE approved_status = 'APPROVING' AND deleted_at IS NULL;
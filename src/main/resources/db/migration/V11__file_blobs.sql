@@ -0,0 +1,19 @@
+-- Содержимое вложений по хешу: одинаковые файлы хранятся один раз, ref_count -
+-- число строк files, которые на него ссылаются. Блобы с ref_count = 0 удаляет фоновая очистка.
+-- Уже загруженные файлы остаются со своим files.content, новые пишутся только в file_blobs
+CREATE TABLE file_blobs (
+    sha256     varchar(64) PRIMARY KEY, -- hex
+    content    bytea NOT NULL,
+    size       bigint NOT NULL,
+    ref_count  bigint NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL DEFAULT now()
+);
+
+-- pdf и картинки уже сжаты, повторно сжимать их при TOAST бессмысленно
+ALTER TABLE file_blobs ALTER COLUMN content SET STORAGE EXTERNAL;
+
+CREATE INDEX idx_file_blobs_unreferenced ON file_blobs (sha256) WHERE ref_count <= 0;
+
+ALTER TABLE files ADD COLUMN content_sha256 varchar(64);
+ALTER TABLE files ADD CONSTRAINT fk_files_content_sha256 FOREIGN KEY (content_sha256) REFERENCES file_blobs (sha256);
+CREATE INDEX idx_files_content_sha256 ON files (content_sha256);
@@ -0,0 +1,21 @@
+-- Превью вложений в отдельной таблице: без bytecode enhancement hibernate не умеет лениво
+-- грузить колонку, и files (EAGER у заявки) тащил превью в каждый список заявок.
+-- files секционирована по uploaded_at, поэтому FK на нее невозможен, строки превью
+-- удаляются вместе с файлами (очистка удаленных заявок и архивация)
+CREATE TABLE file_previews (
+    file_id      bigint PRIMARY KEY,
+    content      bytea NOT NULL,
+    content_type varchar(100) NOT NULL,
+    created_at   timestamp(6) with time zone NOT NULL DEFAULT now()
+);
+
+-- jpeg уже сжат
+ALTER TABLE file_previews ALTER COLUMN content SET STORAGE EXTERNAL;
+
+INSERT INTO file_previews (file_id, content, content_type)
+SELECT id, preview_content, COALESCE(preview_content_type, 'image/jpeg')
+FROM files
+WHERE preview_content IS NOT NULL;
+
+ALTER TABLE files DROP COLUMN preview_content;
+ALTER TABLE files DROP COLUMN preview_content_type;
@@ -0,0 +1,23 @@
+-- Крупнейшие операции за период. Индекс из V9 отдает строки периода в порядке created_at,
+-- а не суммы, поэтому по нему приходится прочитать весь период и отсортировать его.
+-- Частичные индексы ниже уже упорядочены по сумме: запрос идет по ним от самой крупной
+-- операции, отбрасывает строки вне периода и останавливается на N-й подходящей.
+-- Стоимость - число просмотренных операций крупнее N-й подходящей, а не размер периода.
+-- requests секционирована по created_at, так что в горячей таблице просматриваются только
+-- секции периода. Архив не секционирован: для узкого периода планировщик выбирает индекс V9
+
+-- any: по модулю суммы
+CREATE INDEX idx_requests_approved_company_abs_sum ON requests (company_id, abs(sum) DESC)
+    WHERE approved_status = 'APPROVED' AND deleted_at IS NULL AND sum IS NOT NULL;
+CREATE INDEX idx_requests_archive_approved_company_abs_sum ON requests_archive (company_id, abs(sum) DESC)
+    WHERE approved_status = 'APPROVED' AND sum IS NOT NULL;
+
+-- outflow читает индекс с начала, income - с конца
+CREATE INDEX idx_requests_approved_company_sum ON requests (company_id, sum)
+    WHERE approved_status = 'APPROVED' AND deleted_at IS NULL AND sum IS NOT NULL;
+CREATE INDEX idx_requests_archive_approved_company_sum ON requests_archive (company_id, sum)
+    WHERE approved_status = 'APPROVED' AND sum IS NOT NULL;
+
+-- (company_id, created_at, sum) из V9 покрывает те же запросы по периоду
+DROP INDEX idx_requests_company_created;
+DROP INDEX idx_requests_archive_company_created;
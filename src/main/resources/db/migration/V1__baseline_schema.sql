@@ -0,0 +1,60 @@
+-- Схема в том виде, в котором ее раньше создавал hibernate (ddl-auto: update).
+-- На существующих базах все таблицы уже есть, поэтому везде IF NOT EXISTS
+
+CREATE TABLE IF NOT EXISTS requests (
+    id                   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    description          varchar(255),
+    type_of_operation    varchar(255),
+    project_id           bigint,
+    name_of_counterparty varchar(255),
+    sum                  bigint,
+    created_at           timestamp(6) with time zone,
+    company_id           bigint,
+    creator_login        varchar(255),
+    creator_email        varchar(255),
+    responsible_manager  varchar(255),
+    approved_status      varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS files (
+    id                   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    original_filename    varchar(500) NOT NULL,
+    stored_filename      varchar(255) UNIQUE,
+    file_size            bigint NOT NULL,
+    content              bytea,
+    user_email           varchar(255) NOT NULL,
+    company_id           bigint NOT NULL,
+    request_id           bigint NOT NULL REFERENCES requests (id),
+    is_compressed        boolean,
+    uploaded_at          timestamp(6),
+    href                 varchar(255)
+);
+
+-- колонки превью появились позже самой таблицы: на базах, созданных до них, CREATE выше
+-- ничего не делает, а V2 переносит их в секционированную таблицу
+ALTER TABLE files ADD COLUMN IF NOT EXISTS preview_content bytea;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS preview_content_type varchar(100);
+ALTER TABLE files ADD COLUMN IF NOT EXISTS preview_href varchar(255);
+
+CREATE TABLE IF NOT EXISTS operation_events (
+    id                   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_id           bigint NOT NULL,
+    sequence             bigint NOT NULL,
+    event_type           varchar(255) NOT NULL,
+    request_id           bigint NOT NULL,
+    project_id           bigint,
+    type_of_operation    varchar(255),
+    name_of_counterparty varchar(255),
+    sum                  bigint,
+    operation_created_at timestamp(6) with time zone,
+    previous_status      varchar(255),
+    status               varchar(255),
+    actor_email          varchar(255),
+    created_at           timestamp(6) with time zone NOT NULL,
+    CONSTRAINT uq_operation_events_company_sequence UNIQUE (company_id, sequence)
+);
+
+CREATE TABLE IF NOT EXISTS company_event_sequences (
+    company_id    bigint PRIMARY KEY,
+    last_sequence bigint NOT NULL
+);
@@ -0,0 +1,139 @@
+-- Переводим requests (по created_at) и files (по uploaded_at) на помесячные секции.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования,
+-- поэтому ссылку files -> requests больше нельзя держать внешним ключом:
+-- файлы удаляются вместе с заявкой каскадом на стороне JPA
+
+-- Создает недостающие секции parent_YYYY_MM на months месяцев начиная с from_month.
+-- Границы секций - полночь по UTC первого числа месяца
+CREATE OR REPLACE FUNCTION ensure_monthly_partitions(parent text, from_month date, months int)
+RETURNS void AS $$
+DECLARE
+    month_start date;
+    partition_name text;
+BEGIN
+    FOR i IN 0..months - 1 LOOP
+        month_start := (date_trunc('month', from_month) + make_interval(months => i))::date;
+        partition_name := format('%s_%s', parent, to_char(month_start, 'YYYY_MM'));
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, parent,
+                           to_char(month_start, 'YYYY-MM-DD') || ' 00:00:00+00',
+                           to_char((month_start + interval '1 month')::date, 'YYYY-MM-DD') || ' 00:00:00+00');
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Количество месяцев от месяца первой записи до текущего плюс запас вперед
+CREATE OR REPLACE FUNCTION months_until_now(from_month date, ahead int)
+RETURNS int AS $$
+    SELECT ((extract(year FROM now() AT TIME ZONE 'UTC') - extract(year FROM from_month)) * 12
+          + extract(month FROM now() AT TIME ZONE 'UTC') - extract(month FROM from_month))::int + 1 + ahead;
+$$ LANGUAGE sql STABLE;
+
+-- внешние ключи hibernate создавал со сгенерированными именами
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN SELECT conname FROM pg_constraint WHERE conrelid = 'files'::regclass AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE files DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+-- ========== requests ==========
+
+ALTER TABLE requests RENAME TO requests_unpartitioned;
+
+CREATE SEQUENCE requests_partitioned_id_seq;
+
+CREATE TABLE requests (
+    id                   bigint NOT NULL DEFAULT nextval('requests_partitioned_id_seq'),
+    description          varchar(255),
+    type_of_operation    varchar(255),
+    project_id           bigint,
+    name_of_counterparty varchar(255),
+    sum                  bigint,
+    created_at           timestamp(6) with time zone NOT NULL,
+    company_id           bigint,
+    creator_login        varchar(255),
+    creator_email        varchar(255),
+    responsible_manager  varchar(255),
+    approved_status      varchar(255),
+    -- имя задано явно: requests_pkey пока занят старой таблицей
+    CONSTRAINT pk_requests PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE requests_partitioned_id_seq OWNED BY requests.id;
+
+-- страховка от ошибок вставки, в норме остается пустой: секции создаются заранее
+CREATE TABLE requests_default PARTITION OF requests DEFAULT;
+
+DO $$
+DECLARE
+    first_month date := date_trunc('month', COALESCE(
+            (SELECT min(created_at) FROM requests_unpartitioned), now()) AT TIME ZONE 'UTC')::date;
+BEGIN
+    PERFORM ensure_monthly_partitions('requests', first_month, months_until_now(first_month, 3));
+END $$;
+
+INSERT INTO requests (id, description, type_of_operation, project_id, name_of_counterparty, sum, created_at,
+                      company_id, creator_login, creator_email, responsible_manager, approved_status)
+SELECT id, description, type_of_operation, project_id, name_of_counterparty, sum, COALESCE(created_at, now()),
+       company_id, creator_login, creator_email, responsible_manager, approved_status
+FROM requests_unpartitioned;
+
+SELECT setval('requests_partitioned_id_seq', COALESCE((SELECT max(id) FROM requests), 0) + 1, false);
+
+DROP TABLE requests_unpartitioned;
+
+CREATE INDEX idx_requests_company_created ON requests (company_id, created_at);
+CREATE INDEX idx_requests_project_company ON requests (project_id, company_id);
+
+-- ========== files ==========
+
+ALTER TABLE files RENAME TO files_unpartitioned;
+
+CREATE SEQUENCE files_partitioned_id_seq;
+
+CREATE TABLE files (
+    id                   bigint NOT NULL DEFAULT nextval('files_partitioned_id_seq'),
+    original_filename    varchar(500) NOT NULL,
+    stored_filename      varchar(255),
+    file_size            bigint NOT NULL,
+    content              bytea,
+    user_email           varchar(255) NOT NULL,
+    company_id           bigint NOT NULL,
+    request_id           bigint NOT NULL,
+    is_compressed        boolean,
+    uploaded_at          timestamp(6) NOT NULL,
+    href                 varchar(255),
+    preview_content      bytea,
+    preview_content_type varchar(100),
+    preview_href         varchar(255),
+    CONSTRAINT pk_files PRIMARY KEY (id, uploaded_at)
+) PARTITION BY RANGE (uploaded_at);
+
+ALTER SEQUENCE files_partitioned_id_seq OWNED BY files.id;
+
+CREATE TABLE files_default PARTITION OF files DEFAULT;
+
+DO $$
+DECLARE
+    first_month date := date_trunc('month', COALESCE(
+            (SELECT min(uploaded_at) FROM files_unpartitioned), now() AT TIME ZONE 'UTC'))::date;
+BEGIN
+    PERFORM ensure_monthly_partitions('files', first_month, months_until_now(first_month, 3));
+END $$;
+
+INSERT INTO files (id, original_filename, stored_filename, file_size, content, user_email, company_id, request_id,
+                   is_compressed, uploaded_at, href, preview_content, preview_content_type, preview_href)
+SELECT id, original_filename, stored_filename, file_size, content, user_email, company_id, request_id,
+       is_compressed, COALESCE(uploaded_at, now() AT TIME ZONE 'UTC'), href, preview_content, preview_content_type, preview_href
+FROM files_unpartitioned;
+
+SELECT setval('files_partitioned_id_seq', COALESCE((SELECT max(id) FROM files), 0) + 1, false);
+
+DROP TABLE files_unpartitioned;
+
+CREATE INDEX idx_files_request ON files (request_id);
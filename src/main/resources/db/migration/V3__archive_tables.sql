@@ -0,0 +1,38 @@
+-- Холодный архив утвержденных операций старше app.archive.min-age-days.
+-- Содержимое файлов хранится сжатым gzip, поэтому повторное сжатие TOAST отключено
+
+CREATE TABLE requests_archive (
+    id                   bigint PRIMARY KEY,
+    description          varchar(255),
+    type_of_operation    varchar(255),
+    project_id           bigint,
+    name_of_counterparty varchar(255),
+    sum                  bigint,
+    created_at           timestamp(6) with time zone NOT NULL,
+    company_id           bigint,
+    creator_login        varchar(255),
+    creator_email        varchar(255),
+    responsible_manager  varchar(255),
+    approved_status      varchar(255),
+    archived_at          timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX idx_requests_archive_company_created ON requests_archive (company_id, created_at);
+CREATE INDEX idx_requests_archive_project_company ON requests_archive (project_id, company_id);
+
+CREATE TABLE files_archive (
+    id                bigint PRIMARY KEY,
+    original_filename varchar(500) NOT NULL,
+    stored_filename   varchar(255),
+    file_size         bigint NOT NULL,
+    content           bytea,
+    user_email        varchar(255) NOT NULL,
+    company_id        bigint NOT NULL,
+    request_id        bigint NOT NULL REFERENCES requests_archive (id),
+    uploaded_at       timestamp(6),
+    href              varchar(255)
+);
+
+ALTER TABLE files_archive ALTER COLUMN content SET STORAGE EXTERNAL;
+
+CREATE INDEX idx_files_archive_request ON files_archive (request_id);
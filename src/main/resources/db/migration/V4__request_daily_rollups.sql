@@ -0,0 +1,23 @@
+-- Дневные итоги заявок для статистики за период: год по проекту - не больше 365 строк
+-- на тип операции и статус, независимо от числа операций.
+-- День считается в системной временной зоне приложения, поэтому первичное заполнение
+-- выполняет сервис при старте (StatisticRollupService), а не эта миграция
+
+CREATE TABLE request_daily_rollups (
+    id                bigserial PRIMARY KEY,
+    company_id        bigint       NOT NULL,
+    project_id        bigint,
+    type_of_operation varchar(255),
+    approved_status   varchar(255) NOT NULL,
+    day               date         NOT NULL,
+    count             bigint       NOT NULL DEFAULT 0,
+    total             bigint       NOT NULL DEFAULT 0,
+    positive_total    bigint       NOT NULL DEFAULT 0
+);
+
+-- project_id и type_of_operation могут быть пустыми, поэтому уникальность по coalesce
+CREATE UNIQUE INDEX uq_request_daily_rollups_bucket ON request_daily_rollups
+    (company_id, (COALESCE(project_id, 0)), (COALESCE(type_of_operation, '')), approved_status, day);
+
+CREATE INDEX idx_request_daily_rollups_company_day ON request_daily_rollups (company_id, day);
+CREATE INDEX idx_request_daily_rollups_project_day ON request_daily_rollups (company_id, project_id, day);
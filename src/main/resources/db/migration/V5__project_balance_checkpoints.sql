@@ -0,0 +1,23 @@
+-- Помесячные контрольные точки баланса проекта: balance - сумма всех утвержденных операций
+-- проекта по конец месяца month включительно. Баланс на дату = последняя точка до месяца даты
+-- плюс дневные итоги внутри месяца (не больше 31 строки).
+-- Строки есть только для месяцев, в которых были изменения, для остальных действует предыдущая
+
+CREATE TABLE project_balance_checkpoints (
+    id         bigserial PRIMARY KEY,
+    company_id bigint NOT NULL,
+    project_id bigint NOT NULL,
+    month      date   NOT NULL,
+    balance    bigint NOT NULL DEFAULT 0,
+    CONSTRAINT uq_project_balance_checkpoints UNIQUE (company_id, project_id, month)
+);
+
+-- заполнение по уже посчитанным дневным итогам; если их еще нет, точки строятся при первичном заполнении итогов
+INSERT INTO project_balance_checkpoints (company_id, project_id, month, balance)
+SELECT company_id, project_id, month, sum(sum(total)) OVER (PARTITION BY company_id, project_id ORDER BY month)
+FROM (
+    SELECT company_id, project_id, date_trunc('month', day)::date AS month, total
+    FROM request_daily_rollups
+    WHERE approved_status = 'APPROVED' AND project_id IS NOT NULL
+) r
+GROUP BY company_id, project_id, month;
@@ -0,0 +1,2 @@
+-- Версия заявки для оптимистичной блокировки: каждый переход статуса увеличивает ее на единицу
+ALTER TABLE requests ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- Журнал действий с заявками. Пишется пачками фоновым потоком после коммита изменения,
+-- поэтому запись может отставать от operation_events на интервал сброса
+
+CREATE TABLE request_audit_log (
+    id              bigserial PRIMARY KEY,
+    company_id      bigint       NOT NULL,
+    request_id      bigint       NOT NULL,
+    action          varchar(32)  NOT NULL,
+    actor_email     varchar(255),
+    previous_status varchar(32),
+    status          varchar(32),
+    sum             bigint,
+    occurred_at     timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX idx_request_audit_log_company_occurred ON request_audit_log (company_id, occurred_at DESC);
+CREATE INDEX idx_request_audit_log_request ON request_audit_log (request_id, occurred_at DESC);
@@ -0,0 +1,5 @@
+-- Очередь согласования: частичный индекс только по заявкам в статусе APPROVING.
+-- Он во много раз меньше истории компании, и postgres сам поддерживает его
+-- при создании заявки и при каждом переходе статуса
+CREATE INDEX idx_requests_approving_company_created ON requests (company_id, created_at DESC)
+    WHERE approved_status = 'APPROVING';
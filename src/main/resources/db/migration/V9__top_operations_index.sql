@@ -0,0 +1,4 @@
+-- Крупнейшие операции за период: диапазон по created_at читается из индекса вместе с sum,
+-- а postgres держит в памяти только N лучших строк (top-N heapsort)
+CREATE INDEX idx_requests_company_created_sum ON requests (company_id, created_at, sum);
+CREATE INDEX idx_requests_archive_company_created_sum ON requests_archive (company_id, created_at, sum);
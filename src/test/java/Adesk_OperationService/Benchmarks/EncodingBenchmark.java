@@ -0,0 +1,127 @@
+package Adesk_OperationService.Benchmarks;
+
+import Adesk_OperationService.Config.ProtobufRowsHttpMessageConverter;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.FileModel;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Сравнение форматов ответа на синтетическом списке заявок: размер тела, время кодирования и декодирования.
+ * Не является тестом и не запускается surefire, запуск вручную:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=Adesk_OperationService.Benchmarks.EncodingBenchmark -Dexec.args="5000"
+ */
+public class EncodingBenchmark {
+    private static final int WARMUP_ROUNDS = 30;
+    private static final int MEASURED_ROUNDS = 50;
+    private static final TypeReference<List<RequestModel>> REQUEST_LIST = new TypeReference<>() {};
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        List<RequestModel> requests = generate(rows);
+
+        System.out.printf("%d rows%n", rows);
+        System.out.printf("%-10s %12s %14s %14s%n", "format", "bytes", "encode, ms", "decode, ms");
+        runJackson("json", JsonMapper.builder().build(), requests);
+        runJackson("cbor", CBORMapper.builder().build(), requests);
+        runJackson("smile", SmileMapper.builder().build(), requests);
+        runProtobuf(requests);
+    }
+
+    private static void runJackson(String name, ObjectMapper mapper, List<RequestModel> requests) {
+        byte[] encoded = mapper.writeValueAsBytes(requests);
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            mapper.readValue(mapper.writeValueAsBytes(requests), REQUEST_LIST);
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            encoded = mapper.writeValueAsBytes(requests);
+            long middle = System.nanoTime();
+            List<RequestModel> decoded = mapper.readValue(encoded, REQUEST_LIST);
+            decodeNanos += System.nanoTime() - middle;
+            encodeNanos += middle - start;
+            check(decoded, requests);
+        }
+        print(name, encoded.length, encodeNanos, decodeNanos);
+    }
+
+    private static void runProtobuf(List<RequestModel> requests) throws IOException {
+        byte[] encoded = ProtobufRowsHttpMessageConverter.encodeRequestRows(requests);
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            ProtobufRowsHttpMessageConverter.decodeRequestRows(ProtobufRowsHttpMessageConverter.encodeRequestRows(requests));
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            encoded = ProtobufRowsHttpMessageConverter.encodeRequestRows(requests);
+            long middle = System.nanoTime();
+            List<RequestModel> decoded = ProtobufRowsHttpMessageConverter.decodeRequestRows(encoded);
+            decodeNanos += System.nanoTime() - middle;
+            encodeNanos += middle - start;
+            check(decoded, requests);
+        }
+        print("protobuf", encoded.length, encodeNanos, decodeNanos);
+    }
+
+    // результат декодирования используется, чтобы JIT не выбросил его
+    private static void check(List<RequestModel> decoded, List<RequestModel> expected) {
+        if (decoded.size() != expected.size() || !decoded.getLast().getSum().equals(expected.getLast().getSum()))
+            throw new IllegalStateException("decoded rows do not match");
+    }
+
+    private static void print(String name, int bytes, long encodeNanos, long decodeNanos) {
+        System.out.printf("%-10s %12d %14.2f %14.2f%n", name, bytes,
+                encodeNanos / 1_000_000.0 / MEASURED_ROUNDS,
+                decodeNanos / 1_000_000.0 / MEASURED_ROUNDS);
+    }
+
+    private static List<RequestModel> generate(int rows) {
+        Random random = new Random(42);
+        String[] types = {"income", "outcome", "transfer"};
+        String[] counterparties = {"ООО Ромашка", "ИП Иванов", "АО Вектор", "ООО Северный ветер", "ПАО Заря"};
+        RequestStatuses[] statuses = RequestStatuses.values();
+        ZonedDateTime start = ZonedDateTime.now().minusYears(1);
+
+        List<RequestModel> requests = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            var request = new RequestModel();
+            request.setId((long) i + 1);
+            request.setDescription("Оплата по счету №" + random.nextInt(100_000));
+            request.setTypeOfOperation(types[random.nextInt(types.length)]);
+            request.setProjectId((long) random.nextInt(50) + 1);
+            request.setNameOfCounterparty(counterparties[random.nextInt(counterparties.length)]);
+            request.setSum((long) random.nextInt(2_000_000) - 1_000_000);
+            request.setCreatedAt(start.plusMinutes(random.nextInt(525_600)));
+            request.setCompanyId(7L);
+            request.setCreatorLogin("user" + random.nextInt(20));
+            request.setCreatorEmail("user" + random.nextInt(20) + "@example.com");
+            request.setResponsibleManager("manager" + random.nextInt(5) + "@example.com");
+            request.setApprovedStatus(statuses[random.nextInt(statuses.length)]);
+            request.setVersion((long) random.nextInt(3));
+            if (random.nextInt(4) == 0) {
+                request.getFiles().add(FileModel.builder()
+                        .id((long) i + 1)
+                        .originalFilename("invoice-" + i + ".pdf")
+                        .fileSize((long) random.nextInt(1_000_000))
+                        .href("/api/files/" + (i + 1))
+                        .previewHref("/api/files/" + (i + 1) + "/preview")
+                        .build());
+            }
+            requests.add(request);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,87 @@
+package Adesk_OperationService.Config;
+
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.ZonedDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+class ContentNegotiationIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 43_001L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void insertRequests() {
+        insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVING");
+        insertRequest(COMPANY_ID, 1L, "income", "Counterparty", 200, ZonedDateTime.now(), "APPROVED");
+    }
+
+    @Test
+    void jsonIsTheDefaultWithoutAcceptHeader() throws Exception {
+        mockMvc.perform(withHeaders(get("/requests/get-requests")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(withHeaders(get("/requests/get-statistics-blocks")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void jsonIsTheDefaultForAnyAcceptHeader() throws Exception {
+        mockMvc.perform(withHeaders(get("/requests/get-requests")).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void binaryFormatsAreNegotiatedByAcceptHeader() throws Exception {
+        mockMvc.perform(withHeaders(get("/requests/get-requests")).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+        mockMvc.perform(withHeaders(get("/requests/get-requests")).accept(ProtobufRowsHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ProtobufRowsHttpMessageConverter.PROTOBUF));
+    }
+
+    @Test
+    void companyOperationsAreNegotiatedLikeOtherRequestLists() throws Exception {
+        mockMvc.perform(withHeaders(get("/requests/get-company-operations")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(withHeaders(get("/requests/get-company-operations")).accept(ProtobufRowsHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ProtobufRowsHttpMessageConverter.PROTOBUF));
+    }
+
+    @Test
+    void protobufIsOnlyNegotiatedForRequestRowsAndStatisticsBlocks() throws Exception {
+        mockMvc.perform(withHeaders(get("/requests/get-statistics-blocks")).accept(ProtobufRowsHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ProtobufRowsHttpMessageConverter.PROTOBUF));
+        // подсказки контрагентов - тоже список, но не заявок
+        mockMvc.perform(withHeaders(get("/requests/get-counterparty-suggestions")).accept(ProtobufRowsHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(withHeaders(get("/requests/get-audit-log")).accept(ProtobufRowsHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    private MockHttpServletRequestBuilder withHeaders(MockHttpServletRequestBuilder builder) {
+        return builder
+                .header("X-Authenticated", "true")
+                .header("X-Company-Id", COMPANY_ID)
+                .header("X-User-Email", "reader@example.com")
+                .header("X-User-Permissions", "REQUEST_WORK");
+    }
+}
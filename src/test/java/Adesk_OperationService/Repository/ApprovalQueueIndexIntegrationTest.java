@@ -0,0 +1,99 @@
+package Adesk_OperationService.Repository;
+
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Очередь согласования должна читаться по частичному индексу и в общем плане подготовленного запроса,
+ * который драйвер начинает использовать после нескольких выполнений
+ */
+class ApprovalQueueIndexIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 39_001L;
+    private static final String QUEUE_SQL = """
+            SELECT r.id, r.created_at FROM requests r
+            WHERE r.company_id = $1 AND r.approved_status = 'APPROVING' AND r.deleted_at IS NULL
+            ORDER BY r.created_at DESC
+            """;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @BeforeEach
+    void fillHistory() {
+        if (jdbcTemplate.queryForObject("SELECT count(*) FROM requests WHERE company_id = ?", Long.class, COMPANY_ID) > 0)
+            return;
+        jdbcTemplate.update("""
+                INSERT INTO requests (description, type_of_operation, project_id, name_of_counterparty, sum, created_at,
+                                      company_id, creator_login, creator_email, responsible_manager, approved_status, version)
+                SELECT 'history', 'outcome', 1, 'Counterparty ' || (g % 50), -g, now() - make_interval(mins => g),
+                       ?, 'tester', 'tester@example.com', 'manager',
+                       CASE WHEN g % 500 = 0 THEN 'APPROVING' ELSE 'APPROVED' END, 0
+                FROM generate_series(1, 20000) g
+                """, COMPANY_ID);
+        jdbcTemplate.execute("ANALYZE requests");
+    }
+
+    @Test
+    void genericPlanUsesPartialIndex() {
+        List<String> plan = explainGeneric(QUEUE_SQL);
+
+        assertThat(String.join("\n", plan)).containsAnyOf(partialIndexNames().toArray(String[]::new));
+    }
+
+    @Test
+    void boundStatusCannotUsePartialIndexInGenericPlan() {
+        // то, от чего уходит запрос репозитория: статус параметром
+        List<String> plan = explainGeneric(QUEUE_SQL.replace("'APPROVING'", "$2"));
+
+        assertThat(String.join("\n", plan)).doesNotContain(partialIndexNames().toArray(String[]::new));
+    }
+
+    @Test
+    void repositoryReturnsOnlyApprovingRequests() {
+        var rows = requestRepository.findApprovalQueueRows(COMPANY_ID);
+
+        assertThat(rows).hasSize(40);
+        assertThat(rows).allMatch(x -> x.getApprovedStatus().name().equals("APPROVING"));
+    }
+
+    // индекс секционированной таблицы в плане виден под именами индексов секций
+    private List<String> partialIndexNames() {
+        List<String> names = new ArrayList<>(jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'idx_requests_approving_company_created'::regclass
+                """, String.class));
+        names.add("idx_requests_approving_company_created");
+        return names;
+    }
+
+    private List<String> explainGeneric(String sql) {
+        int parameters = sql.contains("$2") ? 2 : 1;
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                statement.execute("PREPARE approval_queue(" + (parameters == 2 ? "bigint, varchar" : "bigint") + ") AS " + sql);
+                List<String> plan = new ArrayList<>();
+                String execute = parameters == 2
+                        ? "EXPLAIN EXECUTE approval_queue(" + COMPANY_ID + ", 'APPROVING')"
+                        : "EXPLAIN EXECUTE approval_queue(" + COMPANY_ID + ")";
+                try (ResultSet rs = statement.executeQuery(execute)) {
+                    while (rs.next())
+                        plan.add(rs.getString(1));
+                }
+                statement.execute("DEALLOCATE approval_queue");
+                statement.execute("RESET plan_cache_mode");
+                return plan;
+            }
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ColumnarStatisticDTO;
+import Adesk_OperationService.Model.Period;
+import Adesk_OperationService.Model.StatBlockItemDTO;
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestPropertySource(properties = {
+        "app.columnar.enabled=true",
+        "app.columnar.company-ids=48001,48002",
+        "app.columnar.checkpoint.dir=${java.io.tmpdir}/columnar-checkpoints-${random.uuid}"
+})
+class ColumnarSnapshotIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 48_001L;
+    // заявки вставляются в обход событий до построения снимка, поэтому у каждого теста своя компания
+    private static final long RESTORED_COMPANY_ID = 48_002L;
+    // итоги по той же выборке, что читает снимок: живые заявки и архив
+    private static final String SQL_TOTALS = """
+            SELECT %s AS key, count(*) AS count, COALESCE(sum(sum), 0) AS total,
+                   COALESCE(sum(sum) FILTER (WHERE sum > 0), 0) AS income,
+                   COALESCE(sum(sum) FILTER (WHERE sum <= 0), 0) AS outcome
+            FROM (
+                SELECT project_id, type_of_operation, name_of_counterparty, approved_status, sum, created_at
+                FROM requests WHERE company_id = ? AND deleted_at IS NULL
+                UNION ALL
+                SELECT project_id, type_of_operation, name_of_counterparty, approved_status, sum, created_at
+                FROM requests_archive WHERE company_id = ?
+            ) r
+            WHERE created_at >= ? AND created_at < ?
+              AND (?::bigint IS NULL OR project_id = ?::bigint)
+              AND (?::text IS NULL OR approved_status = ?::text)
+            GROUP BY 1
+            """;
+
+    @Autowired
+    private ColumnarSnapshotService columnarSnapshotService;
+
+    @Autowired
+    private RequestStatusService requestStatusService;
+
+    @Test
+    void snapshotMatchesSqlBeforeAndAfterStatusEvents() {
+        ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Long> approving = insertRequests(COMPANY_ID, new Random(48), now);
+
+        assertMatchesSql(COMPANY_ID, now);
+
+        // события применяются к уже построенному снимку
+        changeStatuses(approving);
+        assertMatchesSql(COMPANY_ID, now);
+    }
+
+    @Test
+    void restoredCheckpointReplaysOutbox() {
+        ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Long> approving = insertRequests(RESTORED_COMPANY_ID, new Random(49), now);
+        CompanyColumnarSnapshot live = columnarSnapshotService.getSnapshot(RESTORED_COMPANY_ID);
+        columnarSnapshotService.writeCheckpoints();
+
+        // события после контрольной точки есть только в outbox
+        changeStatuses(approving);
+        columnarSnapshotService.restoreCheckpoints();
+
+        CompanyColumnarSnapshot restored = columnarSnapshotService.getSnapshot(RESTORED_COMPANY_ID);
+        assertThat(restored).isNotSameAs(live);
+        assertThat(restored.getSequence()).isEqualTo(jdbcTemplate.queryForObject(
+                "SELECT last_sequence FROM company_event_sequences WHERE company_id = ?", Long.class, RESTORED_COMPANY_ID));
+        assertMatchesSql(RESTORED_COMPANY_ID, now);
+    }
+
+    @Test
+    void disapprovedFilterIsRejected() {
+        Period period = new Period(ZonedDateTime.now().minusDays(1), ZonedDateTime.now());
+        assertThatThrownBy(() -> columnarSnapshotService.aggregate(COMPANY_ID, period, null, RequestStatuses.DISAPPROVED))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // заявки напрямую в БД (каждая 11-я удалена), возвращает id заявок на согласовании
+    private List<Long> insertRequests(Long companyId, Random random, ZonedDateTime now) {
+        List<Long> approving = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            String status = random.nextBoolean() ? "APPROVED" : "APPROVING";
+            Long id = insertRequest(companyId, random.nextInt(5) == 0 ? null : 1L + random.nextInt(4),
+                    random.nextBoolean() ? "income" : "outcome",
+                    random.nextInt(8) == 0 ? null : "Контрагент " + random.nextInt(40),
+                    random.nextInt(20_000) - 10_000, now.minusHours(random.nextInt(24 * 90)), status);
+            if (status.equals("APPROVING"))
+                approving.add(id);
+        }
+        jdbcTemplate.update("UPDATE requests SET deleted_at = now() WHERE company_id = ? AND id % 11 = 0", companyId);
+        return approving;
+    }
+
+    private void changeStatuses(List<Long> approving) {
+        for (int i = 0; i < approving.size(); i += 3) {
+            if (i % 2 == 0)
+                requestStatusService.approve(approving.get(i), null, "approver@example.com");
+            else
+                requestStatusService.disapprove(approving.get(i), null, "approver@example.com");
+        }
+    }
+
+    private void assertMatchesSql(Long companyId, ZonedDateTime now) {
+        for (Period period : List.of(new Period(now.minusDays(120), now.plusDays(1)), new Period(now.minusDays(30), now.minusDays(3))))
+            for (Long projectId : Arrays.asList(null, 2L))
+                for (RequestStatuses status : Arrays.asList(null, RequestStatuses.APPROVED, RequestStatuses.APPROVING)) {
+                    ColumnarStatisticDTO actual = columnarSnapshotService.aggregate(companyId, period, projectId, status);
+                    String filter = period + " project " + projectId + " status " + status;
+                    List<StatBlockItemDTO> total = sql(companyId, "'total'", period, projectId, status);
+                    assertThat(actual.total).as(filter)
+                            .isEqualTo(total.isEmpty() ? new StatBlockItemDTO("total", 0, 0, 0, 0) : total.get(0));
+                    assertThat(actual.byProject).as(filter)
+                            .containsExactlyInAnyOrderElementsOf(sql(companyId, "project_id::text", period, projectId, status));
+                    assertThat(actual.byTypeOfOperation).as(filter)
+                            .containsExactlyInAnyOrderElementsOf(sql(companyId, "type_of_operation", period, projectId, status));
+                    assertThat(actual.byCounterparty).as(filter)
+                            .containsExactlyInAnyOrderElementsOf(sql(companyId, "name_of_counterparty", period, projectId, status));
+                    assertThat(actual.byStatus).as(filter)
+                            .containsExactlyInAnyOrderElementsOf(sql(companyId, "approved_status", period, projectId, status));
+                }
+    }
+
+    private List<StatBlockItemDTO> sql(Long companyId, String key, Period period, Long projectId, RequestStatuses status) {
+        String statusName = status == null ? null : status.name();
+        return jdbcTemplate.query(SQL_TOTALS.formatted(key),
+                (rs, i) -> new StatBlockItemDTO(rs.getString("key"), rs.getLong("count"), rs.getLong("total"),
+                        rs.getLong("income"), rs.getLong("outcome")),
+                companyId, companyId, period.from().toOffsetDateTime(), period.to().toOffsetDateTime(),
+                projectId, projectId, statusName, statusName);
+    }
+}
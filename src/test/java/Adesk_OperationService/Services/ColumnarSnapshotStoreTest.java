@@ -0,0 +1,164 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ColumnarStatisticDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarSnapshotStoreTest {
+    private static final long COMPANY_ID = 49_001L;
+    private static final long START = 1_700_000_000_000L;
+    private static final long DAY = 86_400_000L;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void restoredSnapshotReplaysOutboxAfterCheckpoint() {
+        CompanyColumnarSnapshot original = snapshot(COMPANY_ID, 5_000, 40);
+        var store = new ColumnarSnapshotStore(directory);
+        assertThat(store.write(original)).isEqualTo(40);
+
+        List<CompanyColumnarSnapshot> restored = store.readAll();
+        assertThat(restored).hasSize(1);
+        CompanyColumnarSnapshot copy = restored.get(0);
+        assertThat(copy.getCompanyId()).isEqualTo(COMPANY_ID);
+        assertThat(copy.getSequence()).isEqualTo(40);
+        assertThat(copy.size()).isEqualTo(original.size());
+        assertSameTotals(original, copy);
+
+        // события до контрольной точки уже в файле, после нее догоняются из outbox
+        assertThat(copy.apply(40, OperationEventTypes.DELETED, 2L, null, null, null, null, 0, null)).isTrue();
+        assertSameTotals(original, copy);
+        for (CompanyColumnarSnapshot snapshot : List.of(original, copy)) {
+            snapshot.apply(41, OperationEventTypes.CREATED, 7_000L, 3L, "новый тип", "Новый контрагент", 500L,
+                    START + DAY, RequestStatuses.APPROVING);
+            snapshot.apply(42, OperationEventTypes.APPROVED, 7_000L, null, null, null, null, 0, RequestStatuses.APPROVED);
+            snapshot.apply(43, OperationEventTypes.DELETED, 10L, null, null, null, null, 0, null);
+            snapshot.apply(44, OperationEventTypes.CREATED, 15L, null, "income", null, -25L,
+                    START + 2 * DAY, RequestStatuses.APPROVED);
+        }
+        assertThat(copy.getSequence()).isEqualTo(44);
+        assertThat(copy.size()).isEqualTo(original.size());
+        assertSameTotals(original, copy);
+
+        // повторная запись заменяет файл, временных файлов не остается
+        store.write(copy);
+        assertThat(store.readAll()).singleElement().extracting(CompanyColumnarSnapshot::getSequence).isEqualTo(44L);
+        assertThat(directory.toFile().list()).containsExactly("company-" + COMPANY_ID + ".col");
+    }
+
+    @Test
+    void everyCompanyHasItsOwnCheckpoint() {
+        var store = new ColumnarSnapshotStore(directory);
+        store.write(snapshot(1L, 10, 1));
+        store.write(snapshot(2L, 0, 0));
+        store.write(snapshot(3L, 20, 5));
+        store.delete(3L);
+
+        assertThat(store.readAll()).extracting(CompanyColumnarSnapshot::getCompanyId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(new ColumnarSnapshotStore(directory.resolve("missing")).readAll()).isEmpty();
+    }
+
+    @Test
+    void truncatedCheckpointsAreDropped() throws IOException {
+        var store = new ColumnarSnapshotStore(directory);
+        store.write(snapshot(COMPANY_ID, 1_000, 3));
+        Path file = directory.resolve("company-" + COMPANY_ID + ".col");
+        byte[] content = Files.readAllBytes(file);
+
+        for (int length : new int[]{0, 10, 36, content.length / 2, content.length - 5, content.length - 1}) {
+            Files.write(file, Arrays.copyOf(content, length));
+            assertThat(store.readAll()).as("length %d", length).isEmpty();
+            assertThat(file).as("length %d", length).doesNotExist();
+        }
+    }
+
+    @Test
+    void corruptCheckpointsAreDropped() throws IOException {
+        var store = new ColumnarSnapshotStore(directory);
+        store.write(snapshot(COMPANY_ID, 1_000, 3));
+        Path file = directory.resolve("company-" + COMPANY_ID + ".col");
+        byte[] content = Files.readAllBytes(file);
+
+        // магическое число, размер в заголовке, сумма в колонке, словарь, контрольная сумма
+        for (int offset : new int[]{0, 24, 36 + 1_000 * 16 + 3, content.length - 20, content.length - 2}) {
+            byte[] corrupt = content.clone();
+            corrupt[offset] ^= 0x5A;
+            Files.write(file, corrupt);
+            assertThat(store.readAll()).as("offset %d", offset).isEmpty();
+            assertThat(file).as("offset %d", offset).doesNotExist();
+        }
+
+        // лишние байты в конце
+        byte[] extended = Arrays.copyOf(content, content.length + 8);
+        Files.write(file, extended);
+        assertThat(store.readAll()).isEmpty();
+
+        byte[] garbage = new byte[4_096];
+        new Random(49).nextBytes(garbage);
+        Files.write(file, garbage);
+        assertThat(store.readAll()).isEmpty();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void unfinishedTemporaryFilesAreIgnored() throws IOException {
+        var store = new ColumnarSnapshotStore(directory);
+        store.write(snapshot(COMPANY_ID, 100, 1));
+        try (FileChannel channel = FileChannel.open(directory.resolve("company-2.col.tmp"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        assertThat(store.readAll()).extracting(CompanyColumnarSnapshot::getCompanyId).containsExactly(COMPANY_ID);
+    }
+
+    private void assertSameTotals(CompanyColumnarSnapshot expected, CompanyColumnarSnapshot actual) {
+        for (RequestStatuses status : new RequestStatuses[]{null, RequestStatuses.APPROVED, RequestStatuses.APPROVING}) {
+            ColumnarStatisticDTO left = expected.aggregate(START, START + 400 * DAY, null, status, pool);
+            ColumnarStatisticDTO right = actual.aggregate(START, START + 400 * DAY, null, status, pool);
+            assertThat(right.total).isEqualTo(left.total);
+            assertThat(right.byProject).containsExactlyInAnyOrderElementsOf(left.byProject);
+            assertThat(right.byTypeOfOperation).containsExactlyInAnyOrderElementsOf(left.byTypeOfOperation);
+            assertThat(right.byCounterparty).containsExactlyInAnyOrderElementsOf(left.byCounterparty);
+            assertThat(right.byStatus).containsExactlyInAnyOrderElementsOf(left.byStatus);
+        }
+    }
+
+    // четные id, чтобы после восстановления были и вставки в середину
+    private static CompanyColumnarSnapshot snapshot(Long companyId, int rows, long sequence) {
+        Random random = new Random(companyId);
+        var builder = CompanyColumnarSnapshot.builder(companyId, sequence);
+        for (int i = 1; i <= rows; i++) {
+            builder.add(2L * i, START + (long) (random.nextDouble() * 365 * DAY), (long) random.nextInt(2_000) - 1_000,
+                    random.nextInt(4) == 0 ? null : 1L + random.nextInt(5),
+                    random.nextBoolean() ? RequestStatuses.APPROVED : RequestStatuses.APPROVING,
+                    random.nextBoolean() ? "income" : "outcome",
+                    random.nextInt(10) == 0 ? null : "Контрагент №" + random.nextInt(100));
+        }
+        return builder.build();
+    }
+}
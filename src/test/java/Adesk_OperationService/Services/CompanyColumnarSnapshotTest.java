@@ -0,0 +1,193 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.ColumnarStatisticDTO;
+import Adesk_OperationService.Model.StatBlockItemDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompanyColumnarSnapshotTest {
+    private static final long COMPANY_ID = 48_001L;
+    private static final long START = 1_700_000_000_000L;
+    private static final long DAY = 86_400_000L;
+    private static final String[] TYPES = {"income", "outcome", "transfer"};
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final Random random = new Random(48);
+    // эталон: id -> строка, статус null - заявка удалена
+    private final TreeMap<Long, Row> reference = new TreeMap<>();
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelAggregationMatchesReference() {
+        var builder = CompanyColumnarSnapshot.builder(COMPANY_ID, 0);
+        for (long id = 1; id <= 120_000; id++)
+            add(builder, id);
+        CompanyColumnarSnapshot snapshot = builder.build();
+
+        assertThat(snapshot.size()).isEqualTo(120_000);
+        assertMatchesReference(snapshot);
+    }
+
+    @Test
+    void insertsKeepRowsSortedById() {
+        var builder = CompanyColumnarSnapshot.builder(COMPANY_ID, 0);
+        // больше начальной емкости: массивы растут и при построении
+        for (long id = 10; id <= 30_000; id += 10)
+            add(builder, id);
+        CompanyColumnarSnapshot snapshot = builder.build();
+
+        List<Long> created = new ArrayList<>();
+        for (long id = 5; id <= 30_005; id += 10)
+            created.add(id);
+        created.addAll(List.of(1L, 40_000L, 40_001L));
+        Collections.shuffle(created, random);
+        long sequence = 0;
+        for (Long id : created) {
+            Row row = randomRow(id);
+            assertThat(snapshot.apply(++sequence, OperationEventTypes.CREATED, id, row.projectId, row.type,
+                    row.counterparty, row.sum, row.epochMillis, row.status)).isTrue();
+        }
+        // повторное создание той же заявки новым событием строку не дублирует
+        Row existing = reference.get(15L);
+        assertThat(snapshot.apply(++sequence, OperationEventTypes.CREATED, 15L, 99L, "other", "other", 1L,
+                existing.epochMillis, RequestStatuses.APPROVED)).isTrue();
+
+        CompanyColumnarSnapshot.Checkpoint checkpoint = snapshot.checkpoint();
+        long[] ids = Arrays.copyOf(checkpoint.columns().ids, checkpoint.columns().size);
+        assertThat(ids).isSorted().hasSize(reference.size());
+        assertThat(ids).containsExactly(reference.keySet().stream().mapToLong(Long::longValue).toArray());
+        assertThat(snapshot.getSequence()).isEqualTo(sequence);
+        assertMatchesReference(snapshot);
+    }
+
+    @Test
+    void statusEventsUpdateAndRemoveRows() {
+        var builder = CompanyColumnarSnapshot.builder(COMPANY_ID, 10);
+        for (long id = 1; id <= 5_000; id++)
+            add(builder, id);
+        CompanyColumnarSnapshot snapshot = builder.build();
+
+        long sequence = 10;
+        for (long id = 1; id <= 5_000; id += 7) {
+            Row row = reference.get(id);
+            OperationEventTypes type = id % 3 == 0 ? OperationEventTypes.APPROVED
+                    : id % 3 == 1 ? OperationEventTypes.DISAPPROVED
+                    : OperationEventTypes.DELETED;
+            row.status = type == OperationEventTypes.APPROVED ? RequestStatuses.APPROVED : null;
+            snapshot.apply(++sequence, type, id, row.projectId, row.type, row.counterparty, row.sum, row.epochMillis, null);
+        }
+        assertMatchesReference(snapshot);
+
+        // пропуск номера не применяется, уже учтенное событие пропускается
+        assertThat(snapshot.apply(sequence + 2, OperationEventTypes.DELETED, 2L, null, null, null, null, 0, null)).isFalse();
+        assertThat(snapshot.apply(sequence, OperationEventTypes.DELETED, 2L, null, null, null, null, 0, null)).isTrue();
+        assertThat(snapshot.getSequence()).isEqualTo(sequence);
+        assertMatchesReference(snapshot);
+    }
+
+    @Test
+    void disapprovedRowsAreNotCounted() {
+        var builder = CompanyColumnarSnapshot.builder(COMPANY_ID, 0);
+        builder.add(1, START, 100L, 1L, RequestStatuses.APPROVED, "income", "Альфа");
+        builder.add(2, START, 200L, 1L, RequestStatuses.DISAPPROVED, "income", "Альфа");
+        builder.add(3, START, -50L, null, RequestStatuses.APPROVING, "outcome", null);
+        CompanyColumnarSnapshot snapshot = builder.build();
+
+        ColumnarStatisticDTO result = snapshot.aggregate(START, START + DAY, null, null, pool);
+        assertThat(result.total.getCountOfOperations()).isEqualTo(2);
+        assertThat(result.total.getTotal()).isEqualTo(50);
+        assertThat(result.total.getIncome()).isEqualTo(100);
+        assertThat(result.total.getOutcome()).isEqualTo(-50);
+        assertThat(result.byCounterparty).extracting(StatBlockItemDTO::getKey).containsExactly("Альфа", null);
+    }
+
+    private void assertMatchesReference(CompanyColumnarSnapshot snapshot) {
+        long end = START + 400 * DAY;
+        for (long from : new long[]{START - DAY, START + 37 * DAY})
+            for (long to : new long[]{end, START + 180 * DAY})
+                for (Long projectId : Arrays.asList(null, 3L))
+                    for (RequestStatuses status : Arrays.asList(null, RequestStatuses.APPROVED, RequestStatuses.APPROVING)) {
+                        ColumnarStatisticDTO actual = snapshot.aggregate(from, to, projectId, status, pool);
+                        String filter = from + ".." + to + " project " + projectId + " status " + status;
+                        List<StatBlockItemDTO> total = expected(from, to, projectId, status, row -> "total");
+                        assertThat(actual.total).as(filter)
+                                .isEqualTo(total.isEmpty() ? new StatBlockItemDTO("total", 0, 0, 0, 0) : total.get(0));
+                        assertThat(actual.byProject).as(filter).containsExactlyInAnyOrderElementsOf(
+                                expected(from, to, projectId, status, row -> row.projectId == null ? null : String.valueOf(row.projectId)));
+                        assertThat(actual.byTypeOfOperation).as(filter).containsExactlyInAnyOrderElementsOf(
+                                expected(from, to, projectId, status, row -> row.type));
+                        assertThat(actual.byCounterparty).as(filter).containsExactlyInAnyOrderElementsOf(
+                                expected(from, to, projectId, status, row -> row.counterparty));
+                        assertThat(actual.byStatus).as(filter).containsExactlyInAnyOrderElementsOf(
+                                expected(from, to, projectId, status, row -> row.status.name()));
+                        assertThat(actual.byProject).extracting(StatBlockItemDTO::getTotal)
+                                .isSortedAccordingTo(Collections.reverseOrder());
+                    }
+    }
+
+    private List<StatBlockItemDTO> expected(long from, long to, Long projectId, RequestStatuses status,
+                                            Function<Row, String> key) {
+        Map<String, StatBlockItemDTO> groups = new HashMap<>();
+        for (Row row : reference.values()) {
+            if (row.status == null || (status != null && row.status != status))
+                continue;
+            if (row.epochMillis < from || row.epochMillis >= to)
+                continue;
+            if (projectId != null && !projectId.equals(row.projectId))
+                continue;
+            StatBlockItemDTO item = groups.computeIfAbsent(key.apply(row), x -> new StatBlockItemDTO(x, 0, 0, 0, 0));
+            item.countOfOperations++;
+            item.total += row.sum;
+            if (row.sum > 0)
+                item.income += row.sum;
+            else
+                item.outcome += row.sum;
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private void add(CompanyColumnarSnapshot.Builder builder, long id) {
+        Row row = randomRow(id);
+        builder.add(id, row.epochMillis, row.sum, row.projectId, row.status, row.type, row.counterparty);
+    }
+
+    private Row randomRow(long id) {
+        var row = new Row();
+        row.epochMillis = START + (long) (random.nextDouble() * 365 * DAY);
+        row.sum = (long) random.nextInt(20_000) - 10_000;
+        row.projectId = random.nextInt(6) == 0 ? null : 1L + random.nextInt(5);
+        row.status = random.nextBoolean() ? RequestStatuses.APPROVED : RequestStatuses.APPROVING;
+        row.type = TYPES[random.nextInt(TYPES.length)];
+        row.counterparty = random.nextInt(10) == 0 ? null : "Контрагент " + random.nextInt(300);
+        reference.put(id, row);
+        return row;
+    }
+
+    private static final class Row {
+        private long epochMillis;
+        private long sum;
+        private Long projectId;
+        private RequestStatuses status;
+        private String type;
+        private String counterparty;
+    }
+}
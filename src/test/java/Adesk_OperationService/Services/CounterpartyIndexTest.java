@@ -0,0 +1,136 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.CounterpartySuggestionDTO;
+import Adesk_OperationService.Model.CounterpartyUsageRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CounterpartyIndexTest {
+    private static final long NOW = 1_760_000_000L;
+    private static final long DAY = 86_400L;
+
+    @Test
+    void frequentAndRecentCounterpartiesComeFirst() {
+        CounterpartyIndex index = CounterpartyIndex.build(List.of(
+                new Row("Альфа", 10L, NOW - 365 * DAY),
+                new Row("Альтаир", 3L, NOW),
+                new Row("Алмаз", 2L, NOW - DAY),
+                new Row("Бета", 100L, NOW)), 0);
+
+        assertThat(names(index.suggest("ал", 10))).containsExactly("Альтаир", "Алмаз", "Альфа");
+        assertThat(names(index.suggest("ал", 2))).containsExactly("Альтаир", "Алмаз");
+        assertThat(names(index.suggest("", 1))).containsExactly("Бета");
+    }
+
+    @Test
+    void prefixIsCaseAndWhitespaceInsensitive() {
+        CounterpartyIndex index = CounterpartyIndex.build(List.of(
+                new Row("ООО Ромашка", 2L, NOW),
+                new Row(" ооо ромашка ", 5L, NOW),
+                new Row("ООО Рога", 1L, NOW),
+                new Row("ИП Иванов", 1L, NOW)), 0);
+
+        List<CounterpartySuggestionDTO> suggestions = index.suggest("  ооо РОМ", 10);
+        assertThat(suggestions).hasSize(1);
+        assertThat(suggestions.get(0).getName()).isEqualTo("ооо ромашка");
+        assertThat(suggestions.get(0).getFrequency()).isEqualTo(7);
+        assertThat(index.suggest("ооо ро", 10)).hasSize(2);
+        assertThat(index.suggest("зао", 10)).isEmpty();
+        assertThat(index.suggest("ооо ромашка и партнеры", 10)).isEmpty();
+    }
+
+    @Test
+    void wideRangesAreRankedOverEveryMatchNotOnlyTheAlphabeticalStart() {
+        // лучшие по частоте имена стоят в конце алфавита, дальше первых MAX_SCANNED совпадений
+        List<Row> rows = new ArrayList<>();
+        Random random = new Random(40);
+        for (int i = 0; i < 4 * CounterpartyIndex.MAX_SCANNED; i++)
+            rows.add(new Row(String.format("ООО А%05d", i), 1L + random.nextInt(50), NOW));
+        for (int i = 0; i < 200; i++)
+            rows.add(new Row(String.format("ИП Б%03d", i), 1L + random.nextInt(50), NOW));
+        rows.add(new Row("ООО Яблоко", 1000L, NOW));
+        rows.add(new Row("ООО Ясень", 900L, NOW));
+        rows.add(new Row("ИП Яковлев", 950L, NOW));
+        CounterpartyIndex index = CounterpartyIndex.build(rows, 0);
+
+        assertThat(names(index.suggest("", 3))).containsExactly("ООО Яблоко", "ИП Яковлев", "ООО Ясень");
+        assertThat(names(index.suggest("о", 2))).containsExactly("ООО Яблоко", "ООО Ясень");
+        for (String prefix : List.of("", "о", "ооо", "ооо а", "ооо а1", "ооо а123", "ип", "ип б1", "ооо я"))
+            assertThat(names(index.suggest(prefix, 20))).as(prefix).isEqualTo(bruteForce(rows, prefix, 20));
+    }
+
+    @Test
+    void addedUsageUpdatesRankingAndSkipsAlreadyLoadedEvents() {
+        CounterpartyIndex index = CounterpartyIndex.build(List.of(
+                new Row("Альфа", 3L, NOW),
+                new Row("Бета", 2L, NOW)), 10);
+
+        // события до 10 включительно уже есть в статистике из БД
+        assertThat(index.add("Бета", NOW, 9)).isFalse();
+        assertThat(index.add("Бета", NOW, 10)).isFalse();
+        assertThat(names(index.suggest("", 10))).containsExactly("Альфа", "Бета");
+
+        assertThat(index.add("бета", NOW, 11)).isTrue();
+        assertThat(index.add("Бета", NOW, 12)).isTrue();
+        assertThat(names(index.suggest("", 10))).containsExactly("Бета", "Альфа");
+        assertThat(index.suggest("бет", 1).get(0).getFrequency()).isEqualTo(4);
+
+        assertThat(index.add("Гамма", NOW, 13)).isTrue();
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(names(index.suggest("г", 10))).containsExactly("Гамма");
+        assertThat(names(index.suggest("", 10))).containsExactly("Бета", "Альфа", "Гамма");
+    }
+
+    @Test
+    void wideRangeRankingFollowsAddedUsage() {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 2 * CounterpartyIndex.MAX_SCANNED; i++)
+            rows.add(new Row(String.format("ООО А%05d", i), 5L, NOW - DAY));
+        CounterpartyIndex index = CounterpartyIndex.build(rows, 0);
+
+        for (int sequence = 1; sequence <= 6; sequence++)
+            index.add("ООО Новый", NOW, sequence);
+
+        assertThat(names(index.suggest("", 1))).containsExactly("ООО Новый");
+        assertThat(names(index.suggest("ооо", 2))).containsExactly("ООО Новый", "ООО А00000");
+    }
+
+    // все последние использования одинаковы, поэтому порядок - по частоте, при равенстве по имени
+    private static List<String> bruteForce(List<Row> rows, String prefix, int limit) {
+        return rows.stream()
+                .filter(x -> x.getName().toLowerCase(Locale.ROOT).startsWith(prefix))
+                .sorted(Comparator.comparing(Row::getFrequency).reversed()
+                        .thenComparing(x -> x.getName().toLowerCase(Locale.ROOT)))
+                .limit(limit)
+                .map(Row::getName)
+                .toList();
+    }
+
+    private static List<String> names(List<CounterpartySuggestionDTO> suggestions) {
+        return suggestions.stream().map(CounterpartySuggestionDTO::getName).toList();
+    }
+
+    private record Row(String name, Long frequency, Long lastUsedEpoch) implements CounterpartyUsageRow {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Long getFrequency() {
+            return frequency;
+        }
+
+        @Override
+        public Long getLastUsedEpoch() {
+            return lastUsedEpoch;
+        }
+    }
+}
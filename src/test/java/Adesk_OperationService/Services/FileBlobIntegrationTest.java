@@ -0,0 +1,151 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.OperationModel.Request.RequestFormDTO;
+import Adesk_OperationService.Model.OperationModel.RequestContext;
+import Adesk_OperationService.Repository.ArchivedFileRepository;
+import Adesk_OperationService.Repository.ArchivedRequestRepository;
+import Adesk_OperationService.Repository.FilePreviewRepository;
+import Adesk_OperationService.Repository.RequestRepository;
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileBlobIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 47_001L;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private RequestStatusService requestStatusService;
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private ArchivedRequestRepository archivedRequestRepository;
+
+    @Autowired
+    private ArchivedFileRepository archivedFileRepository;
+
+    @Autowired
+    private FilePreviewRepository filePreviewRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void sameContentIsStoredOnceAndSurvivesPurgeOfOneReference() throws Exception {
+        byte[] content = uniqueContent();
+        Long first = createWithFile(content);
+        Long second = createWithFile(content);
+        String sha256 = sha256Of(first);
+
+        assertThat(sha256Of(second)).isEqualTo(sha256);
+        assertThat(refCount(sha256)).isEqualTo(2L);
+
+        delete(first);
+        purge();
+        fileBlobService.collectGarbage();
+
+        assertThat(refCount(sha256)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM files WHERE request_id = ?", Long.class, first))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT b.content FROM files f JOIN file_blobs b ON b.sha256 = f.content_sha256 WHERE f.request_id = ?",
+                byte[].class, second)).isEqualTo(content);
+    }
+
+    @Test
+    void purgingTheLastReferenceLetsGarbageCollectionDeleteTheBlob() throws Exception {
+        byte[] content = uniqueContent();
+        Long first = createWithFile(content);
+        Long second = createWithFile(content);
+        String sha256 = sha256Of(first);
+
+        delete(first);
+        delete(second);
+        purge();
+
+        assertThat(refCount(sha256)).isZero();
+        fileBlobService.collectGarbage();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM file_blobs WHERE sha256 = ?", Long.class, sha256))
+                .isZero();
+    }
+
+    @Test
+    void archivingAFileReleasesOnlyItsReference() throws Exception {
+        byte[] content = uniqueContent();
+        Long archived = createWithFile(content);
+        Long kept = createWithFile(content);
+        String sha256 = sha256Of(archived);
+        Long archivedFileId = jdbcTemplate.queryForObject("SELECT id FROM files WHERE request_id = ?", Long.class, archived);
+
+        assertThat(requestStatusService.approve(archived, null, "approver@example.com")).isPresent();
+        jdbcTemplate.update("UPDATE requests SET created_at = now() - interval '3 years' WHERE id = ?", archived);
+        jdbcTemplate.update("UPDATE files SET uploaded_at = now() - interval '3 years' WHERE request_id = ?", archived);
+
+        archiveService().archiveOldOperations();
+        fileBlobService.collectGarbage();
+
+        assertThat(archivedRequestRepository.existsById(archived)).isTrue();
+        assertThat(refCount(sha256)).isEqualTo(1L);
+        assertThat(archiveService().findArchivedFile(archivedFileId))
+                .hasValueSatisfying(file -> assertThat(file.getContent()).isEqualTo(content));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT b.content FROM files f JOIN file_blobs b ON b.sha256 = f.content_sha256 WHERE f.request_id = ?",
+                byte[].class, kept)).isEqualTo(content);
+    }
+
+    private Long createWithFile(byte[] content) throws Exception {
+        var form = new RequestFormDTO();
+        form.setDescription("test");
+        form.setTypeOfOperation("outcome");
+        form.setProjectId(1L);
+        form.setNameOfCounterparty("Counterparty");
+        form.setSum(-100L);
+        form.setResponsibleLogin("tester");
+        form.setFiles(List.of(new MockMultipartFile("files", "invoice.txt", "text/plain", content)));
+        return requestService.createRequestAsync(form, new RequestContext(COMPANY_ID, "creator@example.com")).get();
+    }
+
+    private void delete(Long requestId) {
+        assertThat(requestStatusService.delete(List.of(requestId), COMPANY_ID, List.of("APPROVING", "APPROVED"),
+                null, null, "deleter@example.com")).hasSize(1);
+    }
+
+    // очистка без паузы и без задержки после удаления, в тестах она выключена в контексте
+    private void purge() {
+        new RequestPurgeService(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(),
+                true, 0, 20, 200, 100, 0).purgeDeleted();
+    }
+
+    private ArchiveService archiveService() {
+        return new ArchiveService(requestRepository, archivedRequestRepository, archivedFileRepository,
+                filePreviewRepository, fileBlobService, transactionTemplate, true, 730, 50, 10);
+    }
+
+    private String sha256Of(Long requestId) {
+        return jdbcTemplate.queryForObject("SELECT content_sha256 FROM files WHERE request_id = ?", String.class, requestId);
+    }
+
+    private Long refCount(String sha256) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM file_blobs WHERE sha256 = ?", Long.class, sha256);
+    }
+
+    private static byte[] uniqueContent() {
+        return ("invoice " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    }
+}
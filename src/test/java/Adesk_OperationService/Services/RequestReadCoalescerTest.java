@@ -0,0 +1,132 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Config.ReadYourWritesTracker;
+import Adesk_OperationService.Constants.OperationEventTypes;
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Events.OperationLifecycleEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestReadCoalescerTest {
+    private static final int THREADS = 8;
+    private static final String QUERY = "requests";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestReadCoalescer coalescer = new RequestReadCoalescer(
+            new StaticListableBeanFactory().getBeanProvider(ReadYourWritesTracker.class), registry, true, 30_000);
+
+    @Test
+    void identicalConcurrentReadsRunOneQuery() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> coalescer.read(1L, QUERY, "all", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return List.of("a", "b");
+                })));
+            }
+            waitForCoalesced(THREADS - 1);
+            release.countDown();
+
+            List<String> first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<List<String>> result : results)
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            assertThat(loads).hasValue(1);
+            assertThat(registry.counter("read.coalescing.calls", "query", QUERY).count()).isEqualTo(THREADS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void versionBumpSplitsTheFlight() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> before = executor.submit(() -> coalescer.read(1L, QUERY, "all", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "before";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            coalescer.onLifecycleEvent(event(1L));
+            String after = coalescer.read(1L, QUERY, "all", () -> {
+                loads.incrementAndGet();
+                return "after";
+            });
+            release.countDown();
+
+            assertThat(after).isEqualTo("after");
+            assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+            assertThat(loads).hasValue(2);
+            assertThat(registry.counter("read.coalescing.coalesced", "query", QUERY).count()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void leaderFailureReachesWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> coalescer.read(1L, QUERY, "all", () -> {
+                    await(release);
+                    throw new IllegalStateException("db is down");
+                })));
+            }
+            waitForCoalesced(1);
+            release.countDown();
+
+            for (Future<String> result : results)
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("db is down");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitForCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.counter("read.coalescing.coalesced", "query", QUERY).count() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static OperationLifecycleEvent event(Long companyId) {
+        return new OperationLifecycleEvent(1L, OperationEventTypes.CREATED, companyId, 10L, 1L,
+                "Расход", "ООО Ромашка", 100L, null, null, RequestStatuses.APPROVING, "user@example.com");
+    }
+}
@@ -0,0 +1,190 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Constants.RequestStatuses;
+import Adesk_OperationService.Model.OperationModel.RequestModel;
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+class RequestStatusServiceIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 37_001L;
+
+    @Autowired
+    private RequestStatusService requestStatusService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void concurrentApprovesHaveExactlyOneWinner() throws Exception {
+        int contenders = 8;
+        for (int round = 0; round < 20; round++) {
+            Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVING");
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<RequestModel>>> results = new ArrayList<>();
+            ExecutorService executor = Executors.newFixedThreadPool(contenders);
+            try {
+                for (int i = 0; i < contenders; i++) {
+                    String actor = "approver" + i + "@example.com";
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return requestStatusService.approve(requestId, null, actor);
+                    }));
+                }
+                start.countDown();
+
+                int winners = 0;
+                for (Future<Optional<RequestModel>> result : results) {
+                    if (result.get().isPresent())
+                        winners++;
+                }
+                assertThat(winners).as("round %d", round).isEqualTo(1);
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertThat(jdbcTemplate.queryForObject("SELECT approved_status FROM requests WHERE id = ?", String.class, requestId))
+                    .isEqualTo(RequestStatuses.APPROVED.name());
+            assertThat(jdbcTemplate.queryForObject("SELECT version FROM requests WHERE id = ?", Long.class, requestId))
+                    .isEqualTo(1L);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM operation_events WHERE request_id = ? AND event_type = 'APPROVED'", Long.class, requestId))
+                    .isEqualTo(1L);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT previous_status FROM operation_events WHERE request_id = ? AND event_type = 'APPROVED'", String.class, requestId))
+                    .isEqualTo(RequestStatuses.APPROVING.name());
+        }
+    }
+
+    @Test
+    void secondApproveReturnsConflict() throws Exception {
+        Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVING");
+
+        mockMvc.perform(approve(requestId)).andExpect(status().isOk());
+        mockMvc.perform(approve(requestId)).andExpect(status().isConflict());
+    }
+
+    @Test
+    void staleVersionReturnsConflict() throws Exception {
+        Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVING");
+
+        mockMvc.perform(approve(requestId).param("version", "5")).andExpect(status().isConflict());
+        mockMvc.perform(approve(requestId).param("version", "0")).andExpect(status().isOk());
+    }
+
+    @Test
+    void missingRequestReturnsBadRequest() throws Exception {
+        mockMvc.perform(approve(Long.MAX_VALUE)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void disapproveAfterApproveReturnsConflict() throws Exception {
+        Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVING");
+
+        mockMvc.perform(approve(requestId)).andExpect(status().isOk());
+        mockMvc.perform(withHeaders(post("/requests/disapprove-request/{requestId}", requestId)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void concurrentDeletesRecordOneEvent() throws Exception {
+        int contenders = 8;
+        Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVED");
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<RequestModel>>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(contenders);
+        try {
+            for (int i = 0; i < contenders; i++) {
+                String actor = "deleter" + i + "@example.com";
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return requestStatusService.delete(List.of(requestId), COMPANY_ID,
+                            List.of("APPROVING", "APPROVED"), null, null, actor);
+                }));
+            }
+            start.countDown();
+
+            int deleted = 0;
+            for (Future<List<RequestModel>> result : results)
+                deleted += result.get().size();
+            assertThat(deleted).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM operation_events WHERE request_id = ? AND event_type = 'DELETED'", Long.class, requestId))
+                .isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT previous_status FROM operation_events WHERE request_id = ? AND event_type = 'DELETED'", String.class, requestId))
+                .isEqualTo("APPROVED");
+    }
+
+    @Test
+    void deleteChecksStatusAndOwnerInTheStatement() {
+        Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVED");
+
+        assertThat(requestStatusService.delete(List.of(requestId), COMPANY_ID, List.of("APPROVING"),
+                "tester@example.com", null, "tester@example.com")).isEmpty();
+        assertThat(requestStatusService.delete(List.of(requestId), COMPANY_ID, List.of("APPROVED"),
+                null, "someone-else", "someone-else")).isEmpty();
+        assertThat(requestStatusService.delete(List.of(requestId), COMPANY_ID + 1, List.of("APPROVED"),
+                null, null, "approver@example.com")).isEmpty();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM operation_events WHERE request_id = ?", Long.class, requestId))
+                .isZero();
+
+        assertThat(requestStatusService.delete(List.of(requestId), COMPANY_ID, List.of("APPROVED"),
+                null, "manager", "manager")).extracting(RequestModel::getId).containsExactly(requestId);
+        assertThat(jdbcTemplate.queryForObject("SELECT deleted_at IS NOT NULL FROM requests WHERE id = ?", Boolean.class, requestId))
+                .isTrue();
+    }
+
+    @Test
+    void repeatedDeleteRequestRecordsOneEvent() throws Exception {
+        Long requestId = insertRequest(COMPANY_ID, 1L, "outcome", "Counterparty", -100, ZonedDateTime.now(), "APPROVING");
+        String body = "[{\"id\":" + requestId + "}]";
+
+        mockMvc.perform(withHeaders(delete("/requests/delete-requests"))
+                .contentType(MediaType.APPLICATION_JSON).content(body)).andExpect(status().isOk());
+        mockMvc.perform(withHeaders(delete("/requests/delete-requests"))
+                .contentType(MediaType.APPLICATION_JSON).content(body)).andExpect(status().isOk());
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM operation_events WHERE request_id = ? AND event_type = 'DELETED'", Long.class, requestId))
+                .isEqualTo(1L);
+    }
+
+    private MockHttpServletRequestBuilder approve(Long requestId) {
+        return withHeaders(post("/requests/approve-request/{requestId}", requestId));
+    }
+
+    private MockHttpServletRequestBuilder withHeaders(MockHttpServletRequestBuilder builder) {
+        return builder
+                .header("X-Authenticated", "true")
+                .header("X-Company-Id", COMPANY_ID)
+                .header("X-User-Email", "approver@example.com")
+                .header("X-User-Permissions", "REQUEST_WORK");
+    }
+}
@@ -0,0 +1,78 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.OperationModel.Request.RequestFormDTO;
+import Adesk_OperationService.Model.OperationModel.RequestContext;
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatisticRollupServiceIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 33_001L;
+
+    @Autowired
+    private StatisticRollupService statisticRollupService;
+
+    @Autowired
+    private RequestStatusService requestStatusService;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Test
+    void incrementalRollupsMatchRebuild() throws Exception {
+        ZonedDateTime now = ZonedDateTime.now();
+        // пустые проект и тип операции попадают в уникальный ключ через coalesce
+        Long withoutProject = insertRequest(COMPANY_ID, null, "outcome", "A", -100, now.minusDays(1), "APPROVING");
+        Long withoutType = insertRequest(COMPANY_ID, 1L, null, "B", 250, now.minusDays(1), "APPROVING");
+        Long withoutBoth = insertRequest(COMPANY_ID, null, null, "C", -40, now.minusDays(2), "APPROVED");
+        Long sameBucket = insertRequest(COMPANY_ID, null, "outcome", "D", -60, now.minusDays(1), "APPROVING");
+        statisticRollupService.rebuild(COMPANY_ID);
+
+        Long created = requestService.createRequestAsync(form(2L, "income", 500L), context()).get();
+        Long createdToDelete = requestService.createRequestAsync(form(2L, "outcome", -70L), context()).get();
+
+        assertThat(requestStatusService.approve(withoutProject, null, "approver@example.com")).isPresent();
+        assertThat(requestStatusService.approve(withoutType, null, "approver@example.com")).isPresent();
+        assertThat(requestStatusService.approve(created, null, "approver@example.com")).isPresent();
+        assertThat(requestStatusService.disapprove(sameBucket, null, "approver@example.com")).isPresent();
+        assertThat(requestStatusService.delete(List.of(withoutBoth, createdToDelete), COMPANY_ID,
+                List.of("APPROVING", "APPROVED"), null, null, "approver@example.com")).hasSize(2);
+
+        var incremental = rollups();
+        assertThat(incremental).isNotEmpty();
+
+        statisticRollupService.rebuild(COMPANY_ID);
+        assertThat(rollups()).isEqualTo(incremental);
+    }
+
+    // пустые бакеты (все вычтено) пересчет не создает, поэтому сравниваются только непустые
+    private List<Map<String, Object>> rollups() {
+        return jdbcTemplate.queryForList("""
+                SELECT project_id, type_of_operation, approved_status, day, count, total, positive_total
+                FROM request_daily_rollups
+                WHERE company_id = ? AND (count <> 0 OR total <> 0 OR positive_total <> 0)
+                ORDER BY project_id NULLS FIRST, type_of_operation NULLS FIRST, approved_status, day
+                """, COMPANY_ID);
+    }
+
+    private static RequestFormDTO form(Long projectId, String typeOfOperation, Long sum) {
+        var form = new RequestFormDTO();
+        form.setDescription("test");
+        form.setTypeOfOperation(typeOfOperation);
+        form.setProjectId(projectId);
+        form.setNameOfCounterparty("Counterparty");
+        form.setSum(sum);
+        form.setResponsibleLogin("tester");
+        return form;
+    }
+
+    private static RequestContext context() {
+        return new RequestContext(COMPANY_ID, "creator@example.com");
+    }
+}
@@ -0,0 +1,47 @@
+package Adesk_OperationService.Services;
+
+import Adesk_OperationService.Model.Period;
+import Adesk_OperationService.Model.TopOperationRow;
+import Adesk_OperationService.Support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopOperationsIntegrationTest extends PostgresIntegrationTest {
+    private static final long COMPANY_ID = 41_001L;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Test
+    void topOperationsFollowDirectionAndPeriod() {
+        ZonedDateTime now = ZonedDateTime.now();
+        insertRequest(COMPANY_ID, 1L, "outcome", "A", -500, now.minusDays(1), "APPROVED");
+        insertRequest(COMPANY_ID, 1L, "outcome", "B", -100, now.minusDays(2), "APPROVED");
+        insertRequest(COMPANY_ID, 1L, "income", "C", 300, now.minusDays(1), "APPROVED");
+        insertRequest(COMPANY_ID, 2L, "income", "D", 900, now.minusDays(3), "APPROVED");
+        insertRequest(COMPANY_ID, 1L, "outcome", "E", -10_000, now.minusDays(1), "APPROVING");
+        insertRequest(COMPANY_ID, 1L, "outcome", "F", -20_000, now.minusDays(40), "APPROVED");
+
+        Period period = new Period(now.minusDays(10), now.plusDays(1));
+
+        assertThat(sums(statisticsService.getTopOperations(COMPANY_ID, period, null, null, "outflow", 10)))
+                .containsExactly(-500L, -100L);
+        assertThat(sums(statisticsService.getTopOperations(COMPANY_ID, period, null, null, "income", 10)))
+                .containsExactly(900L, 300L);
+        assertThat(sums(statisticsService.getTopOperations(COMPANY_ID, period, null, null, "any", 3)))
+                .containsExactly(900L, -500L, 300L);
+        assertThat(sums(statisticsService.getTopOperations(COMPANY_ID, period, 1L, null, "any", 10)))
+                .containsExactly(-500L, 300L, -100L);
+        assertThat(sums(statisticsService.getTopOperations(COMPANY_ID, period, null, "income", "any", 1)))
+                .containsExactly(900L);
+    }
+
+    private static List<Long> sums(List<TopOperationRow> rows) {
+        return rows.stream().map(TopOperationRow::getSum).toList();
+    }
+}
@@ -0,0 +1,61 @@
+package Adesk_OperationService.Support;
+
+import Adesk_OperationService.Application;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Интеграционные тесты на настоящем postgres: секционирование, частичные индексы и
+ * FOR UPDATE SKIP LOCKED на H2 не проверить. Один контейнер на весь прогон, схему создает flyway.
+ * Без docker тесты пропускаются
+ */
+@SpringBootTest(classes = Application.class, properties = {
+        "SERVER_PORT=0",
+        "spring.jpa.show-sql=false",
+        "app.archive.enabled=false",
+        "app.purge.enabled=false"
+})
+@EnabledIf(value = "dockerAvailable", disabledReason = "docker is not available")
+public abstract class PostgresIntegrationTest {
+    private static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    static boolean dockerAvailable() {
+        return DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        POSTGRES.start(); //повторный вызов для запущенного контейнера ничего не делает
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    /**
+     * Заявка напрямую в БД, в обход событий и кэшей
+     *
+     * @return id заявки
+     */
+    protected Long insertRequest(Long companyId, Long projectId, String typeOfOperation, String counterparty,
+                                 long sum, ZonedDateTime createdAt, String status) {
+        return jdbcTemplate.queryForObject("""
+                        INSERT INTO requests (description, type_of_operation, project_id, name_of_counterparty, sum,
+                                              created_at, company_id, creator_login, creator_email, responsible_manager,
+                                              approved_status, version)
+                        VALUES ('test', ?, ?, ?, ?, ?, ?, 'tester', 'tester@example.com', 'manager', ?, 0)
+                        RETURNING id
+                        """, Long.class, typeOfOperation, projectId, counterparty, sum,
+                createdAt.toOffsetDateTime(), companyId, status);
+    }
+}